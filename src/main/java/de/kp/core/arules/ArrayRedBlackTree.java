@@ -0,0 +1,672 @@
+package de.kp.core.arules;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This is an array-backed variant of the RedBlackTree: instead of a node object 
+ * with four references per element, the tree is stored in parallel arrays and 
+ * nodes are referenced by their int index. Slots of removed elements are kept in
+ * a free list and recycled by subsequent insertions, so a tree with a changing
+ * content does not produce garbage beyond its elements.
+ * <br/><br/>
+ * 
+ * Besides the operations of the RedBlackTree, elements can be searched by their 
+ * support only, without building a sentinel element, and the iterator traverses 
+ * the elements in ascending order.
+ * <br/><br/>
+ * 
+ * Nodes are exposed as int handles (see lowerNode and predecessor) to walk
+ * through the tree; NIL denotes the absence of a node. 
+ * 
+ * @see RedBlackTree
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class ArrayRedBlackTree<T extends Comparable<T> & SupportOrdered> implements Iterable<T> {
+
+	/*
+	 * Define color BLACK & RED
+	 */
+	static final boolean BLACK = true;
+	static final boolean RED = false;
+	
+	/*
+	 * The index of the sentinel node
+	 */
+	public static final int NIL = 0;
+	
+	private static final int INITIAL_CAPACITY = 16;
+
+	/*
+	 * The node arrays; position 0 is the sentinel node
+	 */
+	private Object[] keys;
+	private int[] left;
+	private int[] right;
+	private int[] parent;
+	private boolean[] color;
+	
+	// the next unused slot at the end of the arrays
+	private int next = 1;
+	// the head of the list of recycled slots (chained through "left")
+	private int free = NIL;
+	
+	// number of elements currently in the tree
+	private int size = 0;
+	// the tree root
+	private int root = NIL;
+	
+	// allow the same element to appear in the tree multiple times or not
+	boolean allowSameElementMultipleTimes = true; 
+
+	/**
+	 * Constructor
+	 * 
+	 * @param allowSameElementMultipleTimes
+	 *            if set to true, this allows the tree to contains the same
+	 *            element multiple times. To check if an element is the same,
+	 *            this class use the compareTo method
+	 */
+	public ArrayRedBlackTree(boolean allowSameElementMultipleTimes) {
+		this();
+		this.allowSameElementMultipleTimes = allowSameElementMultipleTimes;
+	}
+
+	/**
+	 * Default constructor
+	 */
+	public ArrayRedBlackTree() {
+		keys   = new Object[INITIAL_CAPACITY];
+		left   = new int[INITIAL_CAPACITY];
+		right  = new int[INITIAL_CAPACITY];
+		parent = new int[INITIAL_CAPACITY];
+		color  = new boolean[INITIAL_CAPACITY];
+		
+		color[NIL] = BLACK;
+	}
+
+	/**
+	 * Get the number of elements stored in this tree.
+	 * @return the number of elements.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Is this tree empty?
+	 * @return  true if yes.
+	 */
+	public boolean isEmpty(){
+		return root == NIL;
+	}
+
+	/**
+	 * Get the element of a node.
+	 * @param x the node
+	 * @return the element or null for NIL
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int x) {
+		return (T)keys[x];
+	}
+	
+	/**
+	 * Allocate a slot for a new node, either a recycled or a new one.
+	 * @param element the element of the node
+	 * @return the node
+	 */
+	private int allocate(T element) {
+		int z;
+		if(free != NIL){
+			z = free;
+			free = left[z];
+		
+		}else{
+			if(next == keys.length){
+				int capacity = keys.length << 1;
+				
+				keys   = Arrays.copyOf(keys, capacity);
+				left   = Arrays.copyOf(left, capacity);
+				right  = Arrays.copyOf(right, capacity);
+				parent = Arrays.copyOf(parent, capacity);
+				color  = Arrays.copyOf(color, capacity);
+			}
+			z = next++;
+		}
+		
+		keys[z]   = element;
+		left[z]   = NIL;
+		right[z]  = NIL;
+		parent[z] = NIL;
+		color[z]  = RED;
+		
+		return z;
+	}
+	
+	/**
+	 * Recycle the slot of a removed node.
+	 * @param z the node
+	 */
+	private void release(int z) {
+		keys[z] = null;
+		left[z] = free;
+		free = z;
+	}
+	
+	/**
+	 * Perform a left rotate of a sub-tree (see RedBlackTree for details).
+	 * @param x the node where the operation will be performed.
+	 */
+	private void leftRotate(int x) {
+		int y = right[x];
+		right[x] = left[y];
+		if(left[y] != NIL){
+			parent[left[y]] = x;
+		}
+		parent[y] = parent[x];
+		if(parent[x] == NIL){
+			root = y;
+		}else if(x == left[parent[x]]){
+			left[parent[x]] = y;
+		}else{
+			right[parent[x]] = y;
+		}
+		left[y] = x;
+		parent[x] = y;
+	}
+	
+	/**
+	 * Perform a right rotate of a sub-tree (see RedBlackTree for details).
+	 * @param x the node where the operation will be performed.
+	 */
+	private void rightRotate(int x) {
+		int y = left[x];
+		left[x] = right[y];
+		if(right[y] != NIL){
+			parent[right[y]] = x;
+		}
+		parent[y] = parent[x];
+		if(parent[x] == NIL){
+			root = y;
+		}else if(x == right[parent[x]]){
+			right[parent[x]] = y;
+		}else{
+			left[parent[x]] = y;
+		}
+		right[y] = x;
+		parent[x] = y;
+	}
+
+	/**
+	 * Add an element to the tree.
+	 * @param element the element to be added
+	 */
+	public void add(T element) {
+
+		int y = NIL;
+		int x = root;
+		
+		int compare = 0;
+		while (x != NIL) {
+			y = x;
+			compare = element.compareTo(get(x));
+			if (compare < 0) {
+				x = left[x];
+			} else {
+				if (compare == 0 && !allowSameElementMultipleTimes) {
+					return;
+				}
+				x = right[x];
+			}
+		}
+		
+		int z = allocate(element);
+		parent[z] = y;
+		if (y == NIL) { // case of an empty tree
+			root = z;
+		} else if (compare < 0) {
+			left[y] = z;
+		} else {
+			right[y] = z;
+		}
+		size++;
+
+		insertFixup(z);
+
+	}
+
+	/**
+	 * Fix the insertion at a given the node (see RedBlackTree for details).
+	 * @param z the node.
+	 */
+	private void insertFixup(int z) {
+		
+		while(color[parent[z]] == RED){
+			int zp = parent[z];
+			int zpp = parent[zp];
+			if(zp == left[zpp]){
+				int y = right[zpp];
+				if(color[y] == RED){
+					color[zp] = BLACK;
+					color[y] = BLACK;
+					color[zpp] = RED;
+					z = zpp;
+				}else{
+					if(z == right[zp]){
+						z = zp;
+						leftRotate(z);
+					}
+					color[parent[z]] = BLACK;
+					color[parent[parent[z]]] = RED;
+					rightRotate(parent[parent[z]]);
+				}
+			}else{  
+				int y = left[zpp];
+				if(color[y] == RED){
+					color[zp] = BLACK;
+					color[y] = BLACK;
+					color[zpp] = RED;
+					z = zpp;
+				}else{
+					if(z == left[zp]){
+						z = zp;
+						rightRotate(z);
+					}
+					color[parent[z]] = BLACK;
+					color[parent[parent[z]]] = RED;
+					leftRotate(parent[parent[z]]);
+				}
+			}
+		}
+		color[root] = BLACK;
+	}
+	
+	/**
+	 * Transplant a subtree (see RedBlackTree for details).
+	 * @param u  a node u
+	 * @param v  a node v
+	 */
+	private void transplant(int u, int v){
+		if(parent[u] == NIL){
+			root = v;
+		}else if(u == left[parent[u]]){
+			left[parent[u]] = v;
+		}else{
+			right[parent[u]] = v;
+		}
+		parent[v] = parent[u];
+	}
+
+	/**
+	 * Remove an element from the tree
+	 * @param element the element to be removed
+	 */
+	public void remove(T element) {
+		// First find the node containing the element.
+		int z = search(root, element);
+		if (z == NIL) { // if the element is not in the tree
+			return;
+		}
+		performDelete(z);
+	}
+
+	/**
+	 * Perform the delete of a node z and recycle its slot (see RedBlackTree for details)
+	 * @param z the node
+	 */
+	private void performDelete(int z) {
+		int x;
+		int y = z;
+		boolean yOriginalColor = color[y];
+		if (left[z] ==  NIL) {
+			x = right[z];
+			transplant(z, right[z]);
+		}else if(right[z] == NIL){
+			x = left[z];
+			transplant(z, left[z]);
+		}
+		else{
+			y = minimum(right[z]);
+			yOriginalColor = color[y];
+			x = right[y];
+			if(parent[y] == z){
+				parent[x] = y;
+			}else{
+				transplant(y, right[y]);
+				right[y] = right[z];
+				parent[right[y]] = y;
+			}
+			transplant(z, y);
+			left[y] = left[z];
+			parent[left[y]] = y;
+			color[y] = color[z];
+		}
+		if(yOriginalColor == BLACK){
+			deleteFixup(x);
+		}
+		size--;
+		
+		release(z);
+	}
+	
+	/**
+	 * Perform the fixup for a delete operation (see RedBlackTree for details)
+	 * @param x the node
+	 */
+	private void deleteFixup(int x) {
+		while(x != root && color[x] == BLACK){
+			if(x == left[parent[x]]){
+				int w = right[parent[x]];
+				if(color[w] == RED){
+					color[w] = BLACK;
+					color[parent[x]] = RED;
+					leftRotate(parent[x]);
+					w = right[parent[x]];
+				}
+				if(color[left[w]] == BLACK && color[right[w]] == BLACK){
+					color[w] = RED;
+					x = parent[x];
+				}else{
+					if(color[right[w]] == BLACK){
+						color[left[w]] = BLACK;
+						color[w] = RED;
+						rightRotate(w);
+						w = right[parent[x]];
+					}
+					color[w] = color[parent[x]];
+					color[parent[x]] = BLACK;
+					color[right[w]] = BLACK;
+					leftRotate(parent[x]);
+					x = root;
+				}
+			}else{
+				// repeat with left/right exchanged
+				int w = left[parent[x]];
+				if(color[w] == RED){
+					color[w] = BLACK;
+					color[parent[x]] = RED;
+					rightRotate(parent[x]);
+					w = left[parent[x]];
+				}
+				if(color[right[w]] == BLACK && color[left[w]] == BLACK){
+					color[w] = RED;
+					x = parent[x];
+				}else{
+					if(color[left[w]] == BLACK){
+						color[right[w]] = BLACK;
+						color[w] = RED;
+						leftRotate(w);
+						w = left[parent[x]];
+					}
+					color[w] = color[parent[x]];
+					color[parent[x]] = BLACK;
+					color[left[w]] = BLACK;
+					rightRotate(parent[x]);
+					x = root;
+				}
+			}
+		}
+		color[x] = BLACK;
+	}
+
+	/**
+	 * Return the largest element having a value lower than a given element k.
+	 */
+	public T lower(T k){
+		int x = root;
+		int result = NIL;
+		while (x != NIL) {
+			if (k.compareTo(get(x)) > 0) {
+				result = x;
+				x = right[x];
+			} else {
+				x = left[x];
+			}
+		}
+		return get(result);
+	}
+	
+	/**
+	 * Return the smallest element having a value higher than a given element k.
+	 */
+	public T higher(T k){
+		int x = root;
+		int result = NIL;
+		while (x != NIL) {
+			if (k.compareTo(get(x)) < 0) {
+				result = x;
+				x = left[x];
+			} else {
+				x = right[x];
+			}
+		}
+		return get(result);
+	}
+	
+	/**
+	 * Return the node of the largest element having a support lower than a given support.
+	 * @param support the support
+	 * @return the node or NIL if there is no such element
+	 */
+	public int lowerNode(int support) {
+		int x = root;
+		int result = NIL;
+		while (x != NIL) {
+			if (support > get(x).getAbsoluteSupport()) {
+				result = x;
+				x = right[x];
+			} else {
+				x = left[x];
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Return the largest element having a support lower than a given support.
+	 * @param support the support
+	 * @return the element or null if there is no such element
+	 */
+	public T lower(int support) {
+		return get(lowerNode(support));
+	}
+	
+	/**
+	 * Return the node of the next smaller element.
+	 * @param x the node
+	 * @return the node of the predecessor or NIL
+	 */
+	public int predecessor(int x) {
+		if (left[x] != NIL) {
+			return maximum(left[x]);
+		}
+		int y = parent[x];
+		while (y != NIL && x == left[y]) {
+			x = y;
+			y = parent[y];
+		}
+		return y;
+	}
+	
+	/**
+	 * Return the node of the next larger element.
+	 * @param x the node
+	 * @return the node of the successor or NIL
+	 */
+	public int successor(int x) {
+		if (right[x] != NIL) {
+			return minimum(right[x]);
+		}
+		int y = parent[x];
+		while (y != NIL && x == right[y]) {
+			x = y;
+			y = parent[y];
+		}
+		return y;
+	}
+	
+	/**
+	 * Get the minimum element in the tree and remove it from the tree
+	 * @return the minimum element in the tree
+	 */
+	public T popMinimum() {
+		if (root == NIL) {
+			return null;
+		}
+		int x = minimum(root);
+		T value = get(x);
+		performDelete(x);
+		return value;
+	}
+	
+	/**
+	 * Get the maximum element in the tree and remove it from the tree
+	 * @return the maximum element in the tree
+	 */
+	public T popMaximum() {
+		if (root == NIL) {
+			return null;
+		}
+		int x = maximum(root);
+		T value = get(x);
+		performDelete(x);
+		return value;
+	}
+	
+	/**
+	 * Get the minimum element in the tree
+	 * @return the minimum element in the tree
+	 */
+	public T minimum() {
+		if (root == NIL) {
+			return null;
+		}
+		return get(minimum(root));
+	}
+
+	/**
+	 * Get the minimum node of a sub-tree.
+	 * @param x  the root of the sub-tree
+	 * @return the minimum node
+	 */
+	private int minimum(int x) {
+		while (left[x] != NIL) {
+			x = left[x];
+		}
+		return x;
+	}
+
+	/**
+	 * Get the maximum element in the tree
+	 * @return the maximum element in the tree
+	 */
+	public T maximum() {
+		if (root == NIL) {
+			return null;
+		}
+		return get(maximum(root));
+	}
+
+	/**
+	 * Get the maximum node of a sub-tree.
+	 * @param x  the root of the sub-tree
+	 * @return the maximum node
+	 */
+	private int maximum(int x) {
+		while (right[x] != NIL) {
+			x = right[x];
+		}
+		return x;
+	}
+
+	/**
+	 * Check if an element is contained in the tree
+	 * @param k  the element.
+	 * @return true if the element is in the tree. Otherwise, false.
+	 */
+	public boolean contains(T k) {
+		return search(root, k) != NIL;
+	}
+
+	/**
+	 * Search for an element and return the node that contains this element.
+	 * @param x The node where the search will start.
+	 * @param k The element to search
+	 * @return The node containing the element or NIL if the element is not in
+	 *         the tree.
+	 */
+	private int search(int x, T k) {
+		while (x != NIL && !k.equals(get(x))) {
+			if (k.compareTo(get(x)) < 0) {
+				x = left[x];
+			} else {
+				x = right[x];
+			}
+		}
+		return x;
+	}
+
+	/**
+	 * Method toString that returns a string with all the elements in the tree
+	 * according to the ascending order.
+	 */
+	public String toString() {
+		StringBuffer buffer = new StringBuffer();
+		for (T element : this) {
+			buffer.append(element + " ");
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * An iterator traversing the elements in ascending order.
+	 */
+	private class InOrderIterator implements Iterator<T> {
+
+		private int nextNode = (root == NIL) ? NIL : minimum(root);
+		
+		public boolean hasNext() {
+			return nextNode != NIL;
+		}
+
+		public T next() {
+			if (nextNode == NIL) {
+				throw new NoSuchElementException();
+			}
+			T value = get(nextNode);
+			nextNode = successor(nextNode);
+			return value;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException("Not implemented yet.");
+		}
+		
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return new InOrderIterator();
+	}
+	
+}
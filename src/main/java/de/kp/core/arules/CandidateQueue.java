@@ -0,0 +1,529 @@
+package de.kp.core.arules;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This is a priority queue for the candidate frontier of the top-k algorithms.
+ * Candidates are ordered by their (absolute) support, and as the support is
+ * bounded by the number of transactions, the queue holds a bucket of candidates
+ * for each support value and a pointer to the highest non-empty bucket.
+ * <br/><br/>
+ * 
+ * Adding a candidate and popping one with the maximum support is O(1) amortised;
+ * candidates of the same support are returned in reverse order of their insertion.
+ * When the minimum support rises, all buckets below are dropped as a whole.
+ * <br/><br/>
+ * 
+ * Optionally, the queue is bounded by a memory budget: when the estimated memory
+ * of the candidates exceeds the budget, the buckets with the lowest support are
+ * written to a run file in a spill directory, and mapped back into memory when 
+ * the queue drains down to their support. Run files are deleted as soon as they
+ * are consumed or dropped, and finally by close().
+ * 
+ * @see TopKAlgorithm
+ * @see TopKNRAlgorithm
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class CandidateQueue<T extends SupportOrdered> {
+
+	// the maximum size of a run file; a large bucket is split across runs,
+	// so that no segment exceeds this size (plus a single candidate)
+	private static final int MAX_RUN_BYTES = 1 << 30;
+	
+	// the buckets of candidates, indexed by support
+	private ArrayList<T>[] buckets;
+
+	// the support of the highest bucket that may be non-empty
+	private int max = -1;
+	// the support below which candidates are dropped
+	private int floor = 0;
+	
+	// number of candidates currently in the queue
+	private int size = 0;
+	
+	/*
+	 * Spilling to disk; segments holds the spilled parts 
+	 * of the buckets, indexed by support
+	 */
+	private CandidateSerializer<T> serializer;
+	
+	private long memoryBudget = Long.MAX_VALUE;
+	private File spillDirectory;
+	
+	private List<Segment>[] segments;
+	private List<Run> runs = new ArrayList<Run>();
+	
+	// the estimated memory of the candidates in memory
+	private long memory = 0;
+	
+	// statistics
+	private long spilledCount = 0;
+	private int runCount = 0;
+	
+	/**
+	 * Constructor
+	 * @param maxSupport the expected maximum support, e.g. the number of transactions
+	 */
+	public CandidateQueue(int maxSupport) {
+		buckets = newBuckets(Math.max(1, maxSupport + 1));
+	}
+	
+	/**
+	 * Constructor for a queue bounded by a memory budget
+	 * @param maxSupport the expected maximum support, e.g. the number of transactions
+	 * @param memoryBudget the memory budget for the candidates (in bytes)
+	 * @param spillDirectory the directory for the run files
+	 * @param serializer the serializer to spill and estimate the candidates
+	 */
+	public CandidateQueue(int maxSupport, long memoryBudget, File spillDirectory, CandidateSerializer<T> serializer) {
+		this(maxSupport);
+		
+		this.memoryBudget   = memoryBudget;
+		this.spillDirectory = spillDirectory;
+		this.serializer     = serializer;
+		
+		segments = newSegments(buckets.length);
+	}
+	
+	/**
+	 * Get the number of candidates stored in this queue.
+	 * @return the number of candidates
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Is this queue empty?
+	 * @return true if yes.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * Add a candidate to the queue; candidates with a support below the
+	 * current floor (see removeBelow) are ignored.
+	 * @param candidate the candidate
+	 * @return true if the candidate was added
+	 */
+	public boolean add(T candidate) {
+		
+		int support = candidate.getAbsoluteSupport();
+		if (support < floor) {
+			return false;
+		}
+		
+		if (support >= buckets.length) {
+			int capacity = Math.max(support + 1, buckets.length << 1);
+			
+			buckets = Arrays.copyOf(buckets, capacity);
+			if (segments != null) {
+				segments = Arrays.copyOf(segments, capacity);
+			}
+		}
+		
+		ArrayList<T> bucket = buckets[support];
+		if (bucket == null) {
+			bucket = new ArrayList<T>();
+			buckets[support] = bucket;
+		}
+		
+		bucket.add(candidate);
+		size++;
+		
+		if (support > max) {
+			max = support;
+		}
+		
+		if (serializer != null) {
+			memory += serializer.sizeOf(candidate);
+			if (memory > memoryBudget) {
+				spill();
+			}
+		}
+		return true;
+		
+	}
+
+	/**
+	 * Get a candidate with the maximum support and remove it from the queue.
+	 * @return the candidate or null if the queue is empty
+	 */
+	public T popMaximum() {
+		
+		if (size == 0) {
+			return null;
+		}
+		
+		ArrayList<T> bucket = top();
+		size--;
+		
+		T candidate = bucket.remove(bucket.size() - 1);
+		if (serializer != null) {
+			memory -= serializer.sizeOf(candidate);
+		}
+		return candidate;
+		
+	}
+
+	/**
+	 * Get the maximum support of the candidates in the queue.
+	 * @return the support or -1 if the queue is empty
+	 */
+	public int maximumSupport() {
+		
+		if (size == 0) {
+			return -1;
+		}
+		
+		while (isEmpty(max)) {
+			max--;
+		}
+		return max;
+		
+	}
+	
+	/**
+	 * Remove all candidates with a support lower than a given support. Subsequently
+	 * added candidates with such a support are ignored.
+	 * @param support the support
+	 * @return the number of removed candidates
+	 */
+	public int removeBelow(int support) {
+		return removeBelow(support, null);
+	}
+	
+	/**
+	 * Remove all candidates with a support lower than a given support and
+	 * collect them; spilled candidates are removed without being read back
+	 * and therefore not collected. Subsequently added candidates with such 
+	 * a support are ignored.
+	 * @param support the support
+	 * @param evicted the list to collect the removed candidates, or null
+	 * @return the number of removed candidates
+	 */
+	public int removeBelow(int support, List<T> evicted) {
+		
+		int removed = 0;
+		
+		int upper = Math.min(support, buckets.length);
+		for (int s = floor; s < upper; s++) {
+			if (buckets[s] != null) {
+				removed += buckets[s].size();
+				if (evicted != null) {
+					evicted.addAll(buckets[s]);
+				}
+				if (serializer != null) {
+					for (T candidate : buckets[s]) {
+						memory -= serializer.sizeOf(candidate);
+					}
+				}
+				buckets[s] = null;
+			}
+			if (segments != null && segments[s] != null) {
+				for (Segment segment : segments[s]) {
+					removed += segment.count;
+					release(segment);
+				}
+				segments[s] = null;
+			}
+		}
+		
+		if (support > floor) {
+			floor = support;
+		}
+		
+		size -= removed;
+		return removed;
+		
+	}
+	
+	/**
+	 * Delete all remaining run files.
+	 */
+	public void close() {
+		
+		for (Run run : runs) {
+			delete(run.file);
+		}
+		runs.clear();
+		
+		if (segments != null) {
+			Arrays.fill(segments, null);
+		}
+		
+	}
+	
+	/**
+	 * Get the number of candidates spilled to disk.
+	 * @return the number of candidates
+	 */
+	public long getSpilledCount() {
+		return spilledCount;
+	}
+	
+	/**
+	 * Get the number of run files written.
+	 * @return the number of run files
+	 */
+	public int getRunCount() {
+		return runCount;
+	}
+	
+	/**
+	 * Check whether a bucket has neither candidates in memory nor on disk.
+	 * @param support the support of the bucket
+	 * @return true if yes
+	 */
+	private boolean isEmpty(int support) {
+		
+		if (buckets[support] != null && !buckets[support].isEmpty()) {
+			return false;
+		}
+		return segments == null || segments[support] == null;
+		
+	}
+	
+	/**
+	 * Get the highest non-empty bucket; spilled candidates of this
+	 * bucket are read back into memory.
+	 * @return the bucket
+	 */
+	private ArrayList<T> top() {
+		
+		while (isEmpty(max)) {
+			max--;
+		}
+		
+		if (segments != null && segments[max] != null) {
+			reload(max);
+		}
+		return buckets[max];
+		
+	}
+	
+	/**
+	 * Write the buckets with the lowest support to run files, until the
+	 * estimated memory is below 3/4 of the budget. The bucket with the 
+	 * maximum support is always kept in memory.
+	 */
+	private void spill() {
+		
+		long target = memoryBudget - (memoryBudget >> 2);
+		
+		Run run = null;
+		DataOutputStream out = null;
+
+		try {
+			
+			for (int s = floor; s < max && memory > target; s++) {
+				
+				ArrayList<T> bucket = buckets[s];
+				if (bucket == null || bucket.isEmpty()) continue;
+				
+				Segment segment = null;
+				for (T candidate : bucket) {
+					
+					// start a new run file when the current one is full; 
+					// the rest of the bucket goes into a new segment
+					if (run == null || run.length >= MAX_RUN_BYTES) {
+						close(out);
+						
+						run = new Run(File.createTempFile("candidates", ".run", spillDirectory));
+						out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run.file)));
+						
+						runs.add(run);
+						runCount++;
+						
+						segment = null;
+					}
+					
+					if (segment == null) {
+						segment = new Segment(run, run.length);
+						run.segments++;
+						
+						if (segments[s] == null) {
+							segments[s] = new ArrayList<Segment>();
+						}
+						segments[s].add(segment);
+					}
+					
+					serializer.write(out, candidate);
+					memory -= serializer.sizeOf(candidate);
+					
+					run.length = out.size();
+					segment.length = run.length - segment.offset;
+					segment.count++;
+					
+				}
+				
+				spilledCount += bucket.size();
+				buckets[s] = null;
+				
+			}
+			
+		} catch (IOException e) {
+			throw new IllegalStateException("Candidates cannot be spilled to " + spillDirectory, e);
+
+		} finally {
+			close(out);
+
+		}
+		
+	}
+	
+	/**
+	 * Read the spilled candidates of a bucket back into memory.
+	 * @param support the support of the bucket
+	 */
+	private void reload(int support) {
+		
+		if (buckets[support] == null) {
+			buckets[support] = new ArrayList<T>();
+		}
+		
+		ArrayList<T> bucket = buckets[support];
+		for (Segment segment : segments[support]) {
+
+			RandomAccessFile file = null;
+			try {
+				
+				file = new RandomAccessFile(segment.run.file, "r");
+				MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, segment.offset, segment.length);
+				
+				for (int i = 0; i < segment.count; i++) {
+					T candidate = serializer.read(buffer);
+					
+					bucket.add(candidate);
+					memory += serializer.sizeOf(candidate);
+				}
+				
+			} catch (IOException e) {
+				throw new IllegalStateException("Candidates cannot be read from " + segment.run.file, e);
+				
+			} finally {
+				close(file);
+				
+			}
+			
+			release(segment);
+			
+		}
+		
+		segments[support] = null;
+		if (memory > memoryBudget) {
+			spill();
+		}
+		
+	}
+	
+	/**
+	 * Release a segment and delete its run file, if all segments are released.
+	 * @param segment the segment
+	 */
+	private void release(Segment segment) {
+		
+		Run run = segment.run;
+		if (--run.segments == 0) {
+			runs.remove(run);
+			delete(run.file);
+		}
+		
+	}
+	
+	private void delete(File file) {
+		if (!file.delete()) {
+			file.deleteOnExit();
+		}
+	}
+	
+	private void close(Closeable closeable) {
+		
+		if (closeable == null) return;
+		try {
+			closeable.close();
+
+		} catch (IOException e) {
+			throw new IllegalStateException("Run file cannot be closed.", e);
+			
+		}
+		
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E> ArrayList<E>[] newBuckets(int length) {
+		// generic arrays cannot be created directly
+		return (ArrayList<E>[]) new ArrayList<?>[length];
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Segment>[] newSegments(int length) {
+		return (List<Segment>[]) new List<?>[length];
+	}
+	
+	/**
+	 * A run file and the number of its segments not yet released.
+	 */
+	private static class Run {
+		
+		File file;
+		int segments = 0;
+		
+		// the number of bytes written
+		long length = 0;
+		
+		Run(File file) {
+			this.file = file;
+		}
+		
+	}
+
+	/**
+	 * The candidates of a bucket spilled to a run file.
+	 */
+	private static class Segment {
+		
+		Run run;
+		
+		long offset;
+		long length = 0;
+		int count = 0;
+		
+		Segment(Run run, long offset) {
+			this.run = run;
+			this.offset = offset;
+		}
+		
+	}
+	
+}
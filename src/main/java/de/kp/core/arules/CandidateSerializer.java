@@ -0,0 +1,56 @@
+package de.kp.core.arules;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A serializer for candidates of a CandidateQueue, used to spill candidates 
+ * to disk when the queue exceeds its memory budget.
+ * 
+ * @see CandidateQueue
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public interface CandidateSerializer<T> {
+
+	/**
+	 * Get an estimate of the memory held by a candidate.
+	 * @param candidate the candidate
+	 * @return the number of bytes
+	 */
+	public long sizeOf(T candidate);
+	
+	/**
+	 * Write a candidate.
+	 * @param out the output
+	 * @param candidate the candidate
+	 * @throws IOException if the candidate cannot be written
+	 */
+	public void write(DataOutput out, T candidate) throws IOException;
+	
+	/**
+	 * Read a candidate from the current position of a buffer.
+	 * @param buffer the buffer
+	 * @return the candidate
+	 */
+	public T read(ByteBuffer buffer);
+	
+}
@@ -0,0 +1,339 @@
+package de.kp.core.arules;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * PairCounter computes the supports of the item pairs with a single pass over
+ * the transactions of a vertical database, instead of intersecting the tidsets
+ * of all pairs of frequent items. On sparse data, where most items never occur
+ * together, the pass costs a small fraction of the intersections.
+ * <br/><br/>
+ * 
+ * The transactions are rebuilt from the item tidsets, as the algorithms remove
+ * items from the transaction lists of a vertical database while mining; the
+ * tidsets are never modified, so the counts hold for every run.
+ * <br/><br/>
+ * 
+ * The pairs are counted in a triangular matrix over the frequent items, or in
+ * a hash table of pair counters, if there are too many frequent items for the
+ * matrix.
+ * 
+ * @see PairSupports
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class PairCounter {
+
+	/*
+	 * The maximum number of cells of the triangular matrix;
+	 * this corresponds to 64 mb of counters
+	 */
+	private static final long MAX_MATRIX_SIZE = 1L << 24;
+	
+	private PairCounter() {
+	}
+
+	/**
+	 * Check whether counting the pairs of frequent items over the transactions
+	 * is cheaper than intersecting their tidsets: the pass over the transactions 
+	 * costs one update per pair of frequent items of each transaction, and the 
+	 * intersection of two tidsets one operation per 64 transactions.
+	 * 
+	 * @param vertical the vertical database
+	 * @param minsupp the minimum support of a frequent item
+	 * @return true if the pairs should be counted over the transactions
+	 */
+	public static boolean isSparse(Vertical vertical, int minsupp) {
+
+		long frequentItems = 0;
+		for (int item = 0; item <= vertical.max; item++) {
+			if (vertical.tableItemCount[item] >= minsupp) frequentItems++;
+		}
+		
+		int[] lengths = lengths(vertical, minsupp);
+		
+		double horizontalCost = 0;
+		for (long length : lengths) {
+			horizontalCost += length * length;
+		}
+		
+		double verticalCost = ((double) frequentItems) * frequentItems * lengths.length / 64;
+		return horizontalCost < verticalCost;
+		
+	}
+	
+	/**
+	 * Count the supports of the pairs of frequent items.
+	 * @param vertical the vertical database
+	 * @param floor the minimum support of the pairs to keep, at least 1
+	 * @return all pairs with a support of at least floor
+	 */
+	public static PairSupports count(Vertical vertical, int floor) {
+		
+		floor = Math.max(1, floor);
+		
+		/*
+		 * Assign dense indexes to the frequent items
+		 */
+		int[] items = new int[vertical.max + 1];
+		int size = 0;
+		
+		for (int item = 0; item <= vertical.max; item++) {
+			if (vertical.tableItemCount[item] >= floor && vertical.tableItemTids[item] != null) {
+				items[size++] = item;
+			}
+		}
+		
+		int[][] transactions = transactions(vertical, floor, items, size);
+		
+		long matrixSize = ((long) size) * (size - 1) / 2;
+		if (matrixSize <= MAX_MATRIX_SIZE) {
+			return countMatrix(transactions, floor, items, size);
+		}
+
+		return countHashed(transactions, floor, items);
+		
+	}
+	
+	/**
+	 * Count the pairs in a triangular matrix; the pair (i,j) with i < j 
+	 * of dense indexes is counted in cell i * (2 * size - i - 1) / 2 + j - i - 1.
+	 */
+	private static PairSupports countMatrix(int[][] transactions, int floor, int[] items, int size) {
+		
+		int[] counts = new int[(int) (((long) size) * (size - 1) / 2)];
+		
+		for (int[] buffer : transactions) {
+			
+			int length = buffer.length;
+			for (int a = 0; a < length; a++) {
+				
+				int i = buffer[a];
+				int offset = i * (2 * size - i - 1) / 2 - i - 1;
+				
+				for (int b = a + 1; b < length; b++) {
+					counts[offset + buffer[b]]++;
+				}
+				
+			}
+			
+		}
+		
+		int pairs = 0;
+		for (int count : counts) {
+			if (count >= floor) pairs++;
+		}
+		
+		int[] items1   = new int[pairs];
+		int[] items2   = new int[pairs];
+		int[] supports = new int[pairs];
+		
+		int pos = 0;
+		int cell = 0;
+		
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++) {
+				
+				if (counts[cell] >= floor) {
+					
+					items1[pos]   = items[i];
+					items2[pos]   = items[j];
+					supports[pos] = counts[cell];
+					
+					pos++;
+					
+				}
+				
+				cell++;
+				
+			}
+		}
+		
+		return new PairSupports(items1, items2, supports, floor);
+		
+	}
+	
+	/**
+	 * Count the pairs in a hash table with open addressing; a pair (i,j) 
+	 * with i < j of dense indexes is keyed by i * 2^32 + j.
+	 */
+	private static PairSupports countHashed(int[][] transactions, int floor, int[] items) {
+		
+		long[] keys = new long[1 << 16];
+		int[] counts = new int[1 << 16];
+		
+		Arrays.fill(keys, -1L);
+		
+		int used = 0;
+		for (int[] buffer : transactions) {
+			
+			int length = buffer.length;
+			for (int a = 0; a < length; a++) {
+				for (int b = a + 1; b < length; b++) {
+					
+					long key = (((long) buffer[a]) << 32) | buffer[b];
+					
+					int mask = keys.length - 1;
+					int slot = hash(key) & mask;
+					
+					while (keys[slot] != -1L && keys[slot] != key) {
+						slot = (slot + 1) & mask;
+					}
+					
+					if (keys[slot] == -1L) {
+						
+						keys[slot] = key;
+						used++;
+						
+						if (2 * used > keys.length) {
+							
+							// grow the table to keep it at most half full
+							long[] oldKeys = keys;
+							int[] oldCounts = counts;
+							
+							keys = new long[2 * oldKeys.length];
+							counts = new int[2 * oldCounts.length];
+							
+							Arrays.fill(keys, -1L);
+							mask = keys.length - 1;
+							
+							for (int i = 0; i < oldKeys.length; i++) {
+								
+								if (oldKeys[i] == -1L) continue;
+								
+								int s = hash(oldKeys[i]) & mask;
+								while (keys[s] != -1L) {
+									s = (s + 1) & mask;
+								}
+								
+								keys[s] = oldKeys[i];
+								counts[s] = oldCounts[i];
+								
+								if (oldKeys[i] == key) slot = s;
+								
+							}
+							
+						}
+						
+					}
+					
+					counts[slot]++;
+					
+				}
+			}
+			
+		}
+
+		int pairs = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != -1L && counts[i] >= floor) pairs++;
+		}
+		
+		int[] items1   = new int[pairs];
+		int[] items2   = new int[pairs];
+		int[] supports = new int[pairs];
+		
+		int pos = 0;
+		for (int i = 0; i < keys.length; i++) {
+			
+			if (keys[i] == -1L || counts[i] < floor) continue;
+			
+			items1[pos]   = items[(int) (keys[i] >>> 32)];
+			items2[pos]   = items[(int) keys[i]];
+			supports[pos] = counts[i];
+			
+			pos++;
+			
+		}
+		
+		return new PairSupports(items1, items2, supports, floor);
+		
+	}
+
+	/**
+	 * Count the frequent items of each transaction from the item tidsets.
+	 * @return the number of frequent items, indexed by tid
+	 */
+	private static int[] lengths(Vertical vertical, int minsupp) {
+		
+		int tids = 0;
+		for (int item = 0; item <= vertical.max; item++) {
+			if (vertical.tableItemTids[item] != null) tids = Math.max(tids, vertical.tableItemTids[item].length());
+		}
+		
+		int[] lengths = new int[tids];
+		for (int item = 0; item <= vertical.max; item++) {
+			
+			if (vertical.tableItemCount[item] < minsupp || vertical.tableItemTids[item] == null) continue;
+			
+			BitSet tidset = vertical.tableItemTids[item];
+			for (int tid = tidset.nextSetBit(0); tid >= 0; tid = tidset.nextSetBit(tid + 1)) {
+				lengths[tid]++;
+			}
+			
+		}
+		
+		return lengths;
+		
+	}
+	
+	/**
+	 * Rebuild the transactions from the tidsets of the frequent items, as 
+	 * the dense indexes of their frequent items in ascending order.
+	 */
+	private static int[][] transactions(Vertical vertical, int floor, int[] items, int size) {
+		
+		int[] lengths = lengths(vertical, floor);
+		
+		int[][] transactions = new int[lengths.length][];
+		for (int tid = 0; tid < lengths.length; tid++) {
+			transactions[tid] = new int[lengths[tid]];
+		}
+		
+		/*
+		 * The items are visited by ascending dense index, 
+		 * so that each transaction is filled in order
+		 */
+		int[] fill = new int[lengths.length];
+		for (int i = 0; i < size; i++) {
+			
+			BitSet tidset = vertical.tableItemTids[items[i]];
+			for (int tid = tidset.nextSetBit(0); tid >= 0; tid = tidset.nextSetBit(tid + 1)) {
+				transactions[tid][fill[tid]++] = i;
+			}
+			
+		}
+		
+		return transactions;
+		
+	}
+	
+	private static int hash(long key) {
+		
+		key ^= (key >>> 33);
+		key *= 0xff51afd7ed558ccdL;
+		key ^= (key >>> 33);
+		
+		return (int) key;
+		
+	}
+	
+}
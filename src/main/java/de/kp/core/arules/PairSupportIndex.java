@@ -0,0 +1,317 @@
+package de.kp.core.arules;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * PairSupportIndex is a persistent sidecar of a vertical database that holds the
+ * supports of all item pairs down to a certain floor. It is built once per vertical
+ * and memory-mapped when opened, so the top-k algorithms are seeded without any 
+ * counting, and the support of a single pair is looked up by binary search.
+ * <br/><br/>
+ * 
+ * The file starts with a header (magic, version, number of transactions, max item, 
+ * floor, number of pairs and a fingerprint of the item tidsets), followed by the
+ * smaller items, the larger items and the supports of the pairs sorted by descending
+ * support, and the positions of the pairs sorted by items.
+ * 
+ * @see PairSupports
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class PairSupportIndex {
+
+	private static final int MAGIC = 0x50534958; // "PSIX"
+	private static final int VERSION = 2;
+	
+	private static final int HEADER_SIZE = 32;
+
+	private int transactions;
+	private int max;
+	
+	private int floor;
+	private int size;
+	
+	private long fingerprint;
+	
+	/*
+	 * Views of the memory-mapped file
+	 */
+	private IntBuffer items1;
+	private IntBuffer items2;
+	private IntBuffer supports;
+	
+	private IntBuffer positions;
+
+	private PairSupportIndex() {
+	}
+
+	/**
+	 * Count the supports of the item pairs of a vertical database and write 
+	 * them to an index file.
+	 * @param vertical the vertical database
+	 * @param floor the minimum support of the pairs to keep, at least 1
+	 * @param file the index file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void build(Vertical vertical, int floor, File file) throws IOException {
+		write(PairCounter.count(vertical, floor), vertical, file);
+	}
+
+	/**
+	 * Write the supports of the item pairs of a vertical database to an index file.
+	 * @param pairs the pair supports
+	 * @param vertical the vertical database the pair supports are computed from
+	 * @param file the index file
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(final PairSupports pairs, Vertical vertical, File file) throws IOException {
+		
+		int size = pairs.size();
+		if ((long) HEADER_SIZE + 16L * size > Integer.MAX_VALUE) {
+			throw new IOException("Too many pairs for an index file: " + size);
+		}
+		
+		// the positions of the pairs sorted by items
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer i, Integer j) {
+				
+				int compare = Integer.compare(pairs.getItem1(i), pairs.getItem1(j));
+				if (compare != 0) {
+					return compare;
+				}
+				return Integer.compare(pairs.getItem2(i), pairs.getItem2(j));
+				
+			}
+		});
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			
+			out.writeInt(vertical.transactions.size());
+			out.writeInt(vertical.max);
+			
+			out.writeInt(pairs.getFloor());
+			out.writeInt(size);
+			
+			out.writeLong(fingerprint(vertical));
+			
+			for (int i = 0; i < size; i++) out.writeInt(pairs.getItem1(i));
+			for (int i = 0; i < size; i++) out.writeInt(pairs.getItem2(i));
+			for (int i = 0; i < size; i++) out.writeInt(pairs.getSupport(i));
+			
+			for (int i = 0; i < size; i++) out.writeInt(order[i]);
+			
+		} finally {
+			out.close();
+			
+		}
+		
+	}
+
+	/**
+	 * Open an index file; the file is memory-mapped, and the mapping remains
+	 * valid after the method returns.
+	 * @param file the index file
+	 * @return the index
+	 * @throws IOException if the file cannot be read or is not an index file
+	 */
+	public static PairSupportIndex open(File file) throws IOException {
+		
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			
+			FileChannel channel = raf.getChannel();
+			if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Not a pair support index: " + file);
+			}
+			
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new IOException("Not a pair support index: " + file);
+			}
+			
+			PairSupportIndex index = new PairSupportIndex();
+			
+			index.transactions = buffer.getInt();
+			index.max = buffer.getInt();
+			
+			index.floor = buffer.getInt();
+			index.size = buffer.getInt();
+			
+			index.fingerprint = buffer.getLong();
+			
+			if (channel.size() != HEADER_SIZE + 16L * index.size) {
+				throw new IOException("Truncated pair support index: " + file);
+			}
+			
+			IntBuffer ints = buffer.asIntBuffer();
+			
+			index.items1    = slice(ints, 0, index.size);
+			index.items2    = slice(ints, index.size, index.size);
+			index.supports  = slice(ints, 2 * index.size, index.size);
+			index.positions = slice(ints, 3 * index.size, index.size);
+			
+			return index;
+			
+		} finally {
+			raf.close();
+			
+		}
+		
+	}
+	
+	private static IntBuffer slice(IntBuffer ints, int offset, int length) {
+		
+		ints.limit(offset + length);
+		ints.position(offset);
+		
+		IntBuffer slice = ints.slice();
+		ints.clear();
+		
+		return slice;
+		
+	}
+
+	/**
+	 * Check whether the index was built from a certain vertical database; 
+	 * this detects changes of the number of transactions, of the items and
+	 * of their tidsets, and thereby of the supports of the pairs.
+	 * @param vertical the vertical database
+	 * @return true if the index matches the vertical
+	 */
+	public boolean isValid(Vertical vertical) {
+		return transactions == vertical.transactions.size() && max == vertical.max && fingerprint == fingerprint(vertical);
+	}
+
+	/**
+	 * Get the support of an item pair.
+	 * @param item1 an item
+	 * @param item2 another item
+	 * @return the support, or -1 if the support is less than the floor
+	 */
+	public int getSupport(int item1, int item2) {
+		
+		int i = Math.min(item1, item2);
+		int j = Math.max(item1, item2);
+		
+		int low = 0;
+		int high = size - 1;
+		
+		while (low <= high) {
+			
+			int mid = (low + high) >>> 1;
+			int pos = positions.get(mid);
+			
+			int compare = Integer.compare(items1.get(pos), i);
+			if (compare == 0) {
+				compare = Integer.compare(items2.get(pos), j);
+			}
+			
+			if (compare < 0) {
+				low = mid + 1;
+				
+			} else if (compare > 0) {
+				high = mid - 1;
+				
+			} else {
+				return supports.get(pos);
+				
+			}
+			
+		}
+		
+		return -1;
+		
+	}
+
+	/**
+	 * Get the pair supports to seed the top-k algorithms with.
+	 * @return the pair supports
+	 */
+	public PairSupports getPairSupports() {
+		
+		int[] items1   = new int[size];
+		int[] items2   = new int[size];
+		int[] supports = new int[size];
+		
+		this.items1.duplicate().get(items1);
+		this.items2.duplicate().get(items2);
+		this.supports.duplicate().get(supports);
+		
+		return PairSupports.sorted(items1, items2, supports, floor);
+		
+	}
+	
+	/**
+	 * Get the support down to which all pairs are contained.
+	 * @return the support
+	 */
+	public int getFloor() {
+		return floor;
+	}
+	
+	/**
+	 * Get the number of pairs.
+	 * @return the number of pairs
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * A fingerprint of the item tidsets of a vertical database; the supports 
+	 * alone do not change, if items are moved between transactions.
+	 */
+	private static long fingerprint(Vertical vertical) {
+		
+		long hash = 1125899906842597L;
+		for (int item = 0; item <= vertical.max; item++) {
+			
+			BitSet tids = vertical.tableItemTids[item];
+			
+			hash = 31 * hash + vertical.tableItemCount[item];
+			hash = 31 * hash + ((tids == null) ? 0 : tids.hashCode());
+			
+		}
+		
+		return hash;
+		
+	}
+	
+}
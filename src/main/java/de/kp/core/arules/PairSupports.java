@@ -0,0 +1,226 @@
+package de.kp.core.arules;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This class holds the supports of item pairs, e.g. computed by a distributed 
+ * pre-pass, to seed the top-k algorithms. It contains all pairs with a support 
+ * of at least a certain floor, sorted by descending support.
+ * <br/><br/>
+ * 
+ * From the pairs, the support of the k-th rule with one item in the antecedent
+ * and one in the consequent is derived; as these rules are part of the result
+ * candidates, this support is a lower bound of the support of the k-th rule, 
+ * and the algorithms start with this support instead of 1.
+ * 
+ * @see TopKAlgorithm
+ * @see TopKNRAlgorithm
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class PairSupports implements Serializable {
+
+	private static final long serialVersionUID = 6209176580227163154L;
+
+	private int[] items1;
+	private int[] items2;
+	
+	private int[] supports;
+	
+	// all pairs with a support of at least floor are contained
+	private int floor;
+	
+	/**
+	 * Constructor
+	 * @param items1 the first items of the pairs
+	 * @param items2 the second items of the pairs
+	 * @param supports the supports of the pairs
+	 * @param floor the support down to which all pairs are contained
+	 */
+	public PairSupports(final int[] items1, final int[] items2, final int[] supports, int floor) {
+		
+		int size = supports.length;
+		
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		
+		// sort by descending support, then by items
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer i, Integer j) {
+				
+				int compare = Integer.compare(supports[j], supports[i]);
+				if (compare != 0) {
+					return compare;
+				}
+				
+				compare = Integer.compare(Math.min(items1[i], items2[i]), Math.min(items1[j], items2[j]));
+				if (compare != 0) {
+					return compare;
+				}
+				return Integer.compare(Math.max(items1[i], items2[i]), Math.max(items1[j], items2[j]));
+				
+			}
+		});
+		
+		this.items1   = new int[size];
+		this.items2   = new int[size];
+		this.supports = new int[size];
+		
+		for (int i = 0; i < size; i++) {
+			
+			int pos = order[i];
+
+			this.items1[i] = Math.min(items1[pos], items2[pos]);
+			this.items2[i] = Math.max(items1[pos], items2[pos]);
+			
+			this.supports[i] = supports[pos];
+			
+		}
+		
+		this.floor = floor;
+		
+	}
+	
+	private PairSupports() {
+	}
+	
+	/**
+	 * Create pair supports from pairs that are already sorted by descending
+	 * support, with the smaller item first, e.g. read from a PairSupportIndex.
+	 * @param items1 the smaller items of the pairs
+	 * @param items2 the larger items of the pairs
+	 * @param supports the supports of the pairs
+	 * @param floor the support down to which all pairs are contained
+	 * @return the pair supports
+	 */
+	static PairSupports sorted(int[] items1, int[] items2, int[] supports, int floor) {
+		
+		PairSupports pairs = new PairSupports();
+		
+		pairs.items1   = items1;
+		pairs.items2   = items2;
+		pairs.supports = supports;
+		
+		pairs.floor = floor;
+		return pairs;
+		
+	}
+	
+	/**
+	 * Get the number of pairs.
+	 * @return the number of pairs
+	 */
+	public int size() {
+		return supports.length;
+	}
+	
+	/**
+	 * Get the smaller item of a pair.
+	 * @param pos the position of the pair
+	 * @return the item
+	 */
+	public int getItem1(int pos) {
+		return items1[pos];
+	}
+
+	/**
+	 * Get the larger item of a pair.
+	 * @param pos the position of the pair
+	 * @return the item
+	 */
+	public int getItem2(int pos) {
+		return items2[pos];
+	}
+
+	/**
+	 * Get the support of a pair.
+	 * @param pos the position of the pair
+	 * @return the support
+	 */
+	public int getSupport(int pos) {
+		return supports[pos];
+	}
+	
+	/**
+	 * Get the support down to which all pairs are contained.
+	 * @return the support
+	 */
+	public int getFloor() {
+		return floor;
+	}
+	
+	/**
+	 * Get the support of the k-th rule with one item in the antecedent and one in
+	 * the consequent that has the minimum confidence. 
+	 * <br/><br/>
+	 * 
+	 * For non-redundant rules, such rules with the same antecedent and support may
+	 * all be subsumed by a single larger rule; they are therefore counted only once.
+	 * <br/><br/>
+	 * 
+	 * The pairs may have been counted elsewhere, e.g. by a separate job, so the 
+	 * support of the k-th rule is checked against the item tidsets; if it does 
+	 * not hold, the pairs do not describe the database and 0 is returned.
+	 * 
+	 * @param k the value of k
+	 * @param minConfidence the minimum confidence threshold
+	 * @param vertical the vertical database
+	 * @param nonRedundant true if the rules are mined without redundancy
+	 * @return the support, or 0 if there are less than k such rules with a support
+	 * of at least floor
+	 */
+	public int getStartSupport(int k, double minConfidence, Vertical vertical, boolean nonRedundant) {
+		
+		int[] tableItemCount = vertical.tableItemCount;
+		
+		// the (antecedent, support) classes counted for non-redundant rules
+		Set<Long> classes = new HashSet<Long>();
+		
+		int count = 0;
+		for (int i = 0; i < supports.length; i++) {
+			
+			int support = supports[i];
+			if (support < floor) break;
+			
+			if (((double) support) / tableItemCount[items1[i]] >= minConfidence) {
+				if (!nonRedundant || classes.add(((long)items1[i] << 32) | support)) count++;
+			}
+			
+			if (((double) support) / tableItemCount[items2[i]] >= minConfidence) {
+				if (!nonRedundant || classes.add(((long)items2[i] << 32) | support)) count++;
+			}
+			
+			if (count >= k) {
+				return (vertical.getSupport(new int[]{items1[i], items2[i]}) == support) ? support : 0;
+			}
+			
+		}
+		
+		return 0;
+		
+	}
+	
+}
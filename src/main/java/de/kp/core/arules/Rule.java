@@ -0,0 +1,245 @@
+package de.kp.core.arules;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * This class represents a final association rule of the top-k algorithms.
+ * Different to RuleG, a rule does not reference any tidsets; it is an immutable
+ * record of the antecedent and consequent items, the support of the rule and
+ * of its antecedent, and the confidence.
+ * <br/><br/>
+ * 
+ * Rules are equal if their antecedent and consequent are equal; they are ordered
+ * like RuleG, by support, then the size of antecedent and consequent, then 
+ * confidence and finally their items.
+ * <br/><br/>
+ * 
+ * For fast subset tests, each itemset has a 64-bit signature with the bit
+ * (item mod 64) set for each of its items: an itemset can only contain another
+ * one, if its signature contains the signature of the other one.
+ * 
+ * @see TopKAlgorithm
+ * @see TopKNRAlgorithm
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public final class Rule implements Comparable<Rule>, SupportOrdered, Serializable {
+
+	private static final long serialVersionUID = 3940221526218452981L;
+
+	private final int[] antecedent;
+	private final int[] consequent;
+	
+	private final int support;
+	private final int antecedentSupport;
+	
+	private final double confidence;
+	
+	private final long antecedentSignature;
+	private final long consequentSignature;
+	
+	/**
+	 * Constructor
+	 * @param antecedent the antecedent items (sorted)
+	 * @param consequent the consequent items (sorted)
+	 * @param support the support of the rule
+	 * @param antecedentSupport the support of the antecedent
+	 */
+	public Rule(int[] antecedent, int[] consequent, int support, int antecedentSupport) {
+		
+		this.antecedent = antecedent;
+		this.consequent = consequent;
+		
+		this.support = support;
+		this.antecedentSupport = antecedentSupport;
+		
+		this.confidence = ((double)support) / antecedentSupport;
+		
+		this.antecedentSignature = signature(antecedent);
+		this.consequentSignature = signature(consequent);
+		
+	}
+	
+	/**
+	 * Compute the 64-bit signature of an itemset.
+	 * @param itemset the itemset
+	 * @return the signature
+	 */
+	public static long signature(int[] itemset) {
+		
+		long signature = 0L;
+		for (int item : itemset) {
+			signature |= 1L << (item & 63);
+		}
+		return signature;
+		
+	}
+	
+	/**
+	 * Get the antecedent; the array must not be modified.
+	 * @return the items
+	 */
+	public int[] getAntecedent() {
+		return antecedent;
+	}
+
+	/**
+	 * Get the consequent; the array must not be modified.
+	 * @return the items
+	 */
+	public int[] getConsequent() {
+		return consequent;
+	}
+
+	/**
+	 * Get the signature of the antecedent.
+	 * @return the signature
+	 */
+	public long getAntecedentSignature() {
+		return antecedentSignature;
+	}
+
+	/**
+	 * Get the signature of the consequent.
+	 * @return the signature
+	 */
+	public long getConsequentSignature() {
+		return consequentSignature;
+	}
+
+	/**
+	 * Get the support of this rule.
+	 * @return the support (integer)
+	 */
+	public int getAbsoluteSupport() {
+		return support;
+	}
+
+	/**
+	 * Get the support of the antecedent of this rule.
+	 * @return the support (integer)
+	 */
+	public int getAntecedentSupport() {
+		return antecedentSupport;
+	}
+
+	/**
+	 * Get the confidence of this rule.
+	 * @return the confidence (double)
+	 */
+	public double getConfidence() {
+		return confidence;
+	}
+
+	@Override
+	public int compareTo(Rule o) {
+		
+		if (o == this) {
+			return 0;
+		}
+		
+		int compare = Integer.compare(support, o.support);
+		if (compare != 0) {
+			return compare;
+		}
+		
+		compare = Integer.compare(antecedent.length, o.antecedent.length);
+		if (compare != 0) {
+			return compare;
+		}
+		
+		compare = Integer.compare(consequent.length, o.consequent.length);
+		if (compare != 0) {
+			return compare;
+		}
+		
+		compare = Double.compare(confidence, o.confidence);
+		if (compare != 0) {
+			return compare;
+		}
+		
+		compare = compare(antecedent, o.antecedent);
+		if (compare != 0) {
+			return compare;
+		}
+		
+		return compare(consequent, o.consequent);
+		
+	}
+	
+	/**
+	 * Compare two itemsets of the same size lexicographically.
+	 */
+	private static int compare(int[] itemset1, int[] itemset2) {
+		
+		for (int i = 0; i < itemset1.length; i++) {
+			int compare = Integer.compare(itemset1[i], itemset2[i]);
+			if (compare != 0) {
+				return compare;
+			}
+		}
+		return 0;
+		
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof Rule)) {
+			return false;
+		}
+		
+		Rule rule = (Rule)o;
+		return Arrays.equals(antecedent, rule.antecedent) && Arrays.equals(consequent, rule.consequent);
+		
+	}
+	
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(antecedent) + Arrays.hashCode(consequent);
+	}
+	
+	/**
+	 * Get a string representation of this rule.
+	 * @return a string
+	 */
+	public String toString() {
+		return toString(antecedent) +  " ==> " + toString(consequent);
+	}
+
+	/**
+	 * Return a string representation of an itemset
+	 * @param itemset the itemset
+	 * @return a string
+	 */
+	private String toString(int[] itemset) {
+		StringBuffer temp = new StringBuffer();
+		// for each item, add it to the string, separated by a space
+		for (int item : itemset) {
+			temp.append(item + " ");
+		}
+		return temp.toString();
+	}
+	
+}
@@ -16,6 +16,7 @@ package de.kp.core.arules;
 * SPMF. If not, see <http://www.gnu.org/licenses/>.
 */
 
+import java.util.Arrays;
 import java.util.BitSet;
 
 /**
@@ -34,7 +35,7 @@ import java.util.BitSet;
  * @see TopKAlgorithm
  * @author Philippe Fournier-Viger
  */
-public class RuleG implements Comparable<RuleG>{
+public class RuleG implements Comparable<RuleG>, SupportOrdered {
 
 	private Integer[] itemset1; // antecedent of the rule
 	private Integer[] itemset2; // consequent of the rule
@@ -50,6 +51,9 @@ public class RuleG implements Comparable<RuleG>{
 	
 	// the support of this rule
 	private int count; 
+	
+	// the support of the antecedent, kept when the tidsets are released
+	int count1 = -1;
 		
 	/**
 	 * Constructor
@@ -71,6 +75,16 @@ public class RuleG implements Comparable<RuleG>{
 		this.maxRight= maxRight;
 	}
 
+	/**
+	 * Get an estimate of the memory held by the tidset of this rule; the
+	 * tidset of the antecedent is not taken into account, as it is usually
+	 * shared with the item tidsets or the rule this rule was expanded from.
+	 * @return the number of bytes
+	 */
+	public long getTidsetBytes() {
+		return (common == null) ? 0 : common.size() / 8;
+	}
+
 	/**
 	 * Get the antecedent.
 	 * @return an itemset
@@ -100,7 +114,52 @@ public class RuleG implements Comparable<RuleG>{
 	 * @return the confidence (double)
 	 */
 	public double getConfidence() {
-		return ((double)count) / tids1.cardinality();
+		return ((double)count) / getAntecedentSupport();
+	}
+
+	/**
+	 * Get the support of the antecedent of this rule.
+	 * @return the support (integer)
+	 */
+	public int getAntecedentSupport() {
+		return (tids1 == null) ? count1 : tids1.cardinality();
+	}
+	
+	/**
+	 * Get the final rule record of this rule, which does not
+	 * reference the tidsets.
+	 * @return the rule
+	 */
+	public Rule toRule() {
+		return new Rule(toArray(itemset1), toArray(itemset2), count, getAntecedentSupport());
+	}
+	
+	private int[] toArray(Integer[] itemset) {
+		int[] items = new int[itemset.length];
+		for (int i = 0; i < itemset.length; i++) {
+			items[i] = itemset[i];
+		}
+		return items;
+	}
+	
+	/**
+	 * Release the tidsets of this rule; they must be rebuilt from the
+	 * item tidsets before the rule can be expanded.
+	 */
+	public void compact() {
+		if (tids1 != null) {
+			count1 = tids1.cardinality();
+		}
+		tids1 = null;
+		common = null;
+	}
+	
+	/**
+	 * Check whether the tidsets of this rule are released.
+	 * @return true if yes
+	 */
+	public boolean isCompact() {
+		return common == null;
 	}
 
 	
@@ -111,7 +170,8 @@ public class RuleG implements Comparable<RuleG>{
 	 *       then on the size of the antecedent,
 	 *       then on the size of the consequent,
 	 *       then on the confidence,
-	 *       then on the hashCodes.
+	 *       then on the items of the antecedent and consequent,
+	 *       so that the order is the same for every execution.
 	 */
 	public int compareTo(RuleG o) {
 		// if the same object, return 0.
@@ -141,13 +201,33 @@ public class RuleG implements Comparable<RuleG>{
 		}
 		
 		// compare confidence
-		int compare4 = (int)(this.getConfidence()  - o.getConfidence());
-		if(compare !=0){
+		int compare4 = Double.compare(this.getConfidence(), o.getConfidence());
+		if(compare4 !=0){
 			return compare4;
 		}
 
-		// compare hashcodes
-		return this.hashCode() - o.hashCode();
+		// compare the items lexicographically
+		int compare5 = compare(this.itemset1, o.itemset1);
+		if(compare5 !=0){
+			return compare5;
+		}
+		return compare(this.itemset2, o.itemset2);
+	}
+	
+	/**
+	 * Compare two itemsets of the same size lexicographically.
+	 */
+	private static int compare(Integer[] itemsetA, Integer[] itemsetB) {
+		if(itemsetA == null || itemsetB == null){
+			return 0;
+		}
+		for(int i=0; i< itemsetA.length; i++){
+			int compare = itemsetA[i].compareTo(itemsetB[i]);
+			if(compare !=0){
+				return compare;
+			}
+		}
+		return 0;
 	}
 	
 	public boolean equals(Object o){
@@ -159,17 +239,21 @@ public class RuleG implements Comparable<RuleG>{
 			return false;
 		}
 		for(int i=0; i< itemset1.length; i++){
-			if(this.itemset1[i] != ruleX.itemset1[i]){
+			if(!this.itemset1[i].equals(ruleX.itemset1[i])){
 				return false;
 			}
 		}
 		for(int i=0; i< itemset2.length; i++){
-			if(this.itemset2[i] != ruleX.itemset2[i]){
+			if(!this.itemset2[i].equals(ruleX.itemset2[i])){
 				return false;
 			}
 		}
 		return true;
 	}
+	
+	public int hashCode(){
+		return 31 * Arrays.hashCode(itemset1) + Arrays.hashCode(itemset2);
+	}
 		
 	/**
 	 * Get a string representation of this rule.
@@ -0,0 +1,136 @@
+package de.kp.core.arules;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * A serializer for RuleG candidates; the tidset of a rule is written as its 
+ * long words, and a missing tidset is marked by a negative length. The tidset
+ * of the antecedent is not written: it is shared with the item tidsets or the
+ * rule a candidate was expanded from, and is rebuilt from the items of the
+ * antecedent when the candidate is expanded.
+ * 
+ * @see CandidateQueue
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class RuleGSerializer implements CandidateSerializer<RuleG> {
+
+	// estimated overhead of a rule and its arrays
+	private static final int RULE_OVERHEAD = 96;
+	
+	@Override
+	public long sizeOf(RuleG rule) {
+		
+		long bytes = RULE_OVERHEAD;
+		
+		bytes += 16 * (rule.getItemset1().length + rule.getItemset2().length);
+		bytes += rule.getTidsetBytes();
+		
+		return bytes;
+		
+	}
+
+	@Override
+	public void write(DataOutput out, RuleG rule) throws IOException {
+
+		writeItems(out, rule.getItemset1());
+		writeItems(out, rule.getItemset2());
+		
+		out.writeInt(rule.getAbsoluteSupport());
+		out.writeInt(rule.getAntecedentSupport());
+		out.writeInt(rule.maxLeft);
+		out.writeInt(rule.maxRight);
+		out.writeBoolean(rule.expandLR);
+		
+		writeTids(out, rule.common);
+		
+	}
+
+	@Override
+	public RuleG read(ByteBuffer buffer) {
+
+		Integer[] itemset1 = readItems(buffer);
+		Integer[] itemset2 = readItems(buffer);
+		
+		int count = buffer.getInt();
+		int count1 = buffer.getInt();
+		int maxLeft = buffer.getInt();
+		int maxRight = buffer.getInt();
+		boolean expandLR = buffer.get() != 0;
+		
+		BitSet common = readTids(buffer);
+		
+		RuleG rule = new RuleG(itemset1, itemset2, count, null, common, maxLeft, maxRight);
+		rule.expandLR = expandLR;
+		rule.count1 = count1;
+		
+		return rule;
+		
+	}
+	
+	private void writeItems(DataOutput out, Integer[] items) throws IOException {
+		out.writeInt(items.length);
+		for (Integer item : items) {
+			out.writeInt(item);
+		}
+	}
+
+	private Integer[] readItems(ByteBuffer buffer) {
+		Integer[] items = new Integer[buffer.getInt()];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = buffer.getInt();
+		}
+		return items;
+	}
+	
+	private void writeTids(DataOutput out, BitSet tids) throws IOException {
+		
+		if (tids == null) {
+			out.writeInt(-1);
+			return;
+		}
+		
+		long[] words = tids.toLongArray();
+		out.writeInt(words.length);
+		for (long word : words) {
+			out.writeLong(word);
+		}
+		
+	}
+	
+	private BitSet readTids(ByteBuffer buffer) {
+		
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		
+		long[] words = new long[length];
+		for (int i = 0; i < length; i++) {
+			words[i] = buffer.getLong();
+		}
+		return BitSet.valueOf(words);
+		
+	}
+	
+}
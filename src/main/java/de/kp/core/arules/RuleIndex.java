@@ -0,0 +1,128 @@
+package de.kp.core.arules;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An index of rules bucketed by support and confidence, used by the
+ * TopKNRAlgorithm to restrict subsumption checks to the rules that
+ * share both values with a new rule.
+ * 
+ * @see TopKNRAlgorithm
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+final class RuleIndex {
+
+	private final Map<Key, Set<Rule>> buckets = new HashMap<Key, Set<Rule>>();
+	
+	/**
+	 * Add a rule to the index.
+	 * @param rule the rule
+	 */
+	void add(Rule rule) {
+		
+		Key key = new Key(rule.getAbsoluteSupport(), rule.getConfidence());
+		
+		Set<Rule> bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = new LinkedHashSet<Rule>();
+			buckets.put(key, bucket);
+		}
+		bucket.add(rule);
+		
+	}
+	
+	/**
+	 * Remove a rule from the index.
+	 * @param rule the rule
+	 */
+	void remove(Rule rule) {
+		
+		Key key = new Key(rule.getAbsoluteSupport(), rule.getConfidence());
+		
+		Set<Rule> bucket = buckets.get(key);
+		if (bucket != null) {
+			bucket.remove(rule);
+			if (bucket.isEmpty()) {
+				buckets.remove(key);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Get the rules with a certain support and confidence.
+	 * @param support the support
+	 * @param confidence the confidence
+	 * @return the rules
+	 */
+	Collection<Rule> get(int support, double confidence) {
+		
+		Set<Rule> bucket = buckets.get(new Key(support, confidence));
+		if (bucket == null) {
+			return Collections.emptySet();
+		}
+		return bucket;
+		
+	}
+	
+	/**
+	 * Remove all rules from the index.
+	 */
+	void clear() {
+		buckets.clear();
+	}
+	
+	private static final class Key {
+		
+		final int support;
+		final double confidence;
+		
+		Key(int support, double confidence) {
+			this.support = support;
+			this.confidence = confidence;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			
+			Key key = (Key)o;
+			return support == key.support && Double.compare(confidence, key.confidence) == 0;
+			
+		}
+
+		@Override
+		public int hashCode() {
+			long bits = Double.doubleToLongBits(confidence);
+			return 31 * support + (int)(bits ^ (bits >>> 32));
+		}
+		
+	}
+	
+}
@@ -0,0 +1,115 @@
+package de.kp.core.arules;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * RuleVerifier re-scores rules, e.g. mined from a sample or a previous version 
+ * of the transactions, against a vertical database and derives a lower bound of 
+ * the support of the k-th rule from the rules that qualify.
+ * 
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+class RuleVerifier {
+
+	/**
+	 * Re-score rules against a vertical database.
+	 * @param rules the rules
+	 * @param minConfidence the minimum confidence threshold
+	 * @param vertical the vertical database
+	 * @return the re-scored rules that have the minimum confidence
+	 */
+	static List<Rule> verify(Iterable<Rule> rules, double minConfidence, Vertical vertical) {
+		
+		List<Rule> verified = new ArrayList<Rule>();
+		for (Rule rule : rules) {
+			
+			// a rule with items unknown to the database has no support
+			int antecedentSupport = vertical.getSupport(rule.getAntecedent());
+			if (antecedentSupport == 0) continue;
+
+			int[] itemset = new int[rule.getAntecedent().length + rule.getConsequent().length];
+			
+			System.arraycopy(rule.getAntecedent(), 0, itemset, 0, rule.getAntecedent().length);
+			System.arraycopy(rule.getConsequent(), 0, itemset, rule.getAntecedent().length, rule.getConsequent().length);
+			
+			int support = vertical.getSupport(itemset);
+			if (support == 0 || ((double) support) / antecedentSupport < minConfidence) continue;
+			
+			verified.add(new Rule(rule.getAntecedent(), rule.getConsequent(), support, antecedentSupport));
+			
+		}
+		
+		return verified;
+		
+	}
+
+	/**
+	 * Get the support of the k-th of a set of distinct rules. For non-redundant rules, 
+	 * rules with the same support and antecedent support may all be subsumed by a 
+	 * single rule; they are therefore counted only once.
+	 * 
+	 * @param rules the rules
+	 * @param k the value of k
+	 * @param maxSupport the maximum support of a rule
+	 * @param nonRedundant true if the rules are mined without redundancy
+	 * @return the support, or 0 if there are less than k rules
+	 */
+	static int getKthSupport(List<Rule> rules, int k, int maxSupport, boolean nonRedundant) {
+		
+		// the (support, antecedent support) classes counted for non-redundant rules
+		Set<Long> classes = new HashSet<Long>();
+		
+		// the number of rules per support
+		int[] supports = new int[maxSupport + 1];
+		int count = 0;
+		
+		for (Rule rule : rules) {
+
+			int support = rule.getAbsoluteSupport();
+			if (!nonRedundant || classes.add(((long)support << 32) | rule.getAntecedentSupport())) {
+				supports[support]++;
+				count++;
+			}
+			
+		}
+		
+		if (count < k) {
+			return 0;
+		}
+		
+		count = 0;
+		for (int support = maxSupport; support > 0; support--) {
+			
+			count += supports[support];
+			if (count >= k) {
+				return support;
+			}
+			
+		}
+		
+		return 0;
+		
+	}
+	
+}
@@ -0,0 +1,115 @@
+package de.kp.core.arules;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * SampleBootstrap derives the minimum support to start the top-k algorithms with 
+ * from a random sample of the transactions. The rules mined from the sample are 
+ * re-scored against the full vertical; if at least k of them have the minimum 
+ * confidence on the full data, the support of the k-th of these rules is a lower
+ * bound of the support of the k-th rule, and the result remains exact. Otherwise
+ * the algorithms start with the support they would have started with.
+ * <br/><br/>
+ * 
+ * For non-redundant rules, verified rules with the same support and antecedent 
+ * support may all be subsumed by a single rule; they are therefore counted only
+ * once.
+ * 
+ * @see TopKAlgorithm
+ * @see TopKNRAlgorithm
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class SampleBootstrap {
+
+	private double fraction;
+	private long seed;
+
+	/*
+	 * Statistics of the last bootstrap
+	 */
+	int sampleRules = 0;    // rules mined from the sample
+	int verifiedRules = 0;  // rules that qualify on the full data
+	
+	/**
+	 * Constructor
+	 * @param fraction the fraction of the transactions to sample, 0 < fraction < 1
+	 * @param seed the seed of the random generator
+	 */
+	public SampleBootstrap(double fraction, long seed) {
+		this.fraction = fraction;
+		this.seed = seed;
+	}
+
+	/**
+	 * Draw the sample of a vertical.
+	 * @param vertical the vertical database
+	 * @return the sample
+	 */
+	public Vertical sample(Vertical vertical) {
+		return vertical.sample(fraction, new Random(seed));
+	}
+	
+	/**
+	 * Re-score the rules mined from the sample against the full vertical and
+	 * determine the support of the k-th verified rule.
+	 * 
+	 * @param rules the rules mined from the sample
+	 * @param k the value of k
+	 * @param minConfidence the minimum confidence threshold
+	 * @param vertical the full vertical database
+	 * @param nonRedundant true if the rules are mined without redundancy
+	 * @return the support, or 0 if less than k rules qualify
+	 */
+	public int getStartSupport(Iterable<Rule> rules, int k, double minConfidence, Vertical vertical, boolean nonRedundant) {
+		
+		sampleRules = 0;
+		Iterator<Rule> iter = rules.iterator();
+		while (iter.hasNext()) {
+			iter.next();
+			sampleRules++;
+		}
+		
+		List<Rule> verified = RuleVerifier.verify(rules, minConfidence, vertical);
+		verifiedRules = verified.size();
+		
+		return RuleVerifier.getKthSupport(verified, k, vertical.transactions.size(), nonRedundant);
+		
+	}
+	
+	/**
+	 * Get the number of rules mined from the sample in the last bootstrap.
+	 * @return the number of rules
+	 */
+	public int getSampleRules() {
+		return sampleRules;
+	}
+	
+	/**
+	 * Get the number of rules of the last bootstrap that qualify on the full data.
+	 * @return the number of rules
+	 */
+	public int getVerifiedRules() {
+		return verifiedRules;
+	}
+	
+}
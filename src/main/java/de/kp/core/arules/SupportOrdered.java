@@ -0,0 +1,36 @@
+package de.kp.core.arules;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+/**
+ * An element whose natural order is primarily defined by its (absolute)
+ * support; this allows to search for elements by their support only.
+ * 
+ * @see ArrayRedBlackTree
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public interface SupportOrdered {
+
+	/**
+	 * Get the support of this element.
+	 * @return the support
+	 */
+	public int getAbsoluteSupport();
+	
+}
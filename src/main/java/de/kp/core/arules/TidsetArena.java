@@ -0,0 +1,150 @@
+package de.kp.core.arules;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * TidsetArena hands out the tidsets created during the expansion of a candidate.
+ * Most of these tidsets are short-lived: they belong to expansions below the minimum 
+ * support, to rules that are saved but not kept as candidates, or to candidates that
+ * are rejected or compacted. At the end of an expansion, all tidsets that were not 
+ * retained by a candidate are released to a pool in bulk; the next expansion reuses
+ * them together with their word arrays, instead of allocating new ones.
+ * 
+ * @see TopKAlgorithm
+ * @see TopKNRAlgorithm
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class TidsetArena {
+
+	// the maximum number of pooled tidsets
+	private int capacity;
+	
+	private ArrayDeque<BitSet> pool = new ArrayDeque<BitSet>();
+	
+	/*
+	 * The tidsets of the current expansion, and those retained
+	 * by candidates; tidsets are compared by identity
+	 */
+	private List<BitSet> acquired = new ArrayList<BitSet>();
+	private Set<BitSet> retained = Collections.newSetFromMap(new IdentityHashMap<BitSet,Boolean>());
+	
+	/*
+	 * Statistics
+	 */
+	private long acquiredCount = 0;
+	private long reusedCount = 0;
+	
+	/**
+	 * Constructor
+	 * @param capacity the maximum number of pooled tidsets
+	 */
+	public TidsetArena(int capacity) {
+		this.capacity = capacity;
+	}
+	
+	/**
+	 * Get an empty tidset for the current expansion.
+	 * @return the tidset
+	 */
+	public BitSet acquire() {
+		
+		BitSet tids = pool.poll();
+		if (tids == null) {
+			tids = new BitSet();
+			
+		} else {
+			reusedCount++;
+			
+		}
+		
+		acquiredCount++;
+		acquired.add(tids);
+		
+		return tids;
+		
+	}
+	
+	/**
+	 * Get a copy of a tidset for the current expansion.
+	 * @param tids the tidset to copy
+	 * @return the copy
+	 */
+	public BitSet copy(BitSet tids) {
+		
+		BitSet copy = acquire();
+		copy.or(tids);
+		
+		return copy;
+		
+	}
+	
+	/**
+	 * Keep a tidset beyond the current expansion, e.g. because it is referenced
+	 * by a candidate; tidsets that were not acquired from the arena are ignored.
+	 * @param tids the tidset
+	 */
+	public void retain(BitSet tids) {
+		if (tids != null) retained.add(tids);
+	}
+	
+	/**
+	 * End the current expansion: all tidsets acquired since the last release
+	 * that were not retained are cleared and returned to the pool.
+	 */
+	public void release() {
+		
+		for (BitSet tids : acquired) {
+			
+			if (retained.contains(tids) || pool.size() >= capacity) continue;
+			
+			tids.clear();
+			pool.push(tids);
+			
+		}
+		
+		acquired.clear();
+		retained.clear();
+		
+	}
+	
+	/**
+	 * Get the number of tidsets acquired from the arena.
+	 * @return the number of tidsets
+	 */
+	public long getAcquiredCount() {
+		return acquiredCount;
+	}
+	
+	/**
+	 * Get the number of acquired tidsets that were reused from the pool.
+	 * @return the number of tidsets
+	 */
+	public long getReusedCount() {
+		return reusedCount;
+	}
+	
+}
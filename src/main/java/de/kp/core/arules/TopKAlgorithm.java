@@ -16,12 +16,18 @@ package de.kp.core.arules;
 * SPMF. If not, see <http://www.gnu.org/licenses/>.
 */
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.PriorityQueue;
+import java.util.Set;
 
 /**
  * TopKRules is an algorithm for mining the TOP-K  association rules from a 
@@ -62,14 +68,58 @@ public class TopKAlgorithm {
 	/*
 	 * Internal data structures
 	 */	
-	PriorityQueue<RuleG> kRules;    // the top k rules found until now
-	RedBlackTree<RuleG> candidates; // the candidates for expansion
+	PriorityQueue<Rule> kRules;    // the top k rules found until now
+	CandidateQueue<RuleG> candidates; // the candidates for expansion
 
 	/* 
 	 * The maximum number of candidates at the same time 
 	 * during the last execution
 	 */
 	int maxCandidateCount = 0;
+	
+	long evictedCount = 0;  // candidates evicted or rejected below the minimum support
+	long evictedBytes = 0;  // estimated tidset memory released by eviction
+
+	/*
+	 * Memory budget for the candidates; candidates beyond 
+	 * the budget are spilled to the spill directory
+	 */
+	long memoryBudget = 0;
+	File spillDirectory;
+	
+	// keep candidates without their tidsets
+	boolean compactCandidates = false;
+	
+	// the arena for the tidsets of an expansion, null for none
+	TidsetArena tidsetArena;
+	
+	// the supports of item pairs to seed the algorithm
+	PairSupports pairSupports;
+	
+	// the persistent supports of item pairs to seed the algorithm
+	PairSupportIndex pairSupportIndex;
+	
+	// the supports of item pairs of the current run
+	PairSupports seedPairs;
+	
+	// the bootstrap of the minimum support from a sample
+	SampleBootstrap sampleBootstrap;
+	
+	// the rules of a previous run to start with
+	Iterable<Rule> priorRules;
+	
+	// the prior rules that were added to the top-k rules
+	Set<Rule> seededRules;
+	
+	/*
+	 * The partition of the search space to mine; a rule belongs to the
+	 * partition (item mod partitions) of the first item of its antecedent
+	 */
+	int partition = 0;
+	int partitions = 1;
+	
+	// the minimum support to start with
+	int initialMinsupp = 1;
 
 	/*
 	 * Default constructor
@@ -77,6 +127,134 @@ public class TopKAlgorithm {
 	public TopKAlgorithm() {
 	}
 
+	/**
+	 * Restrict the search to the rules whose first antecedent item
+	 * belongs to a certain partition; as expansions only add larger
+	 * items, every rule belongs to exactly one partition, and the
+	 * top-k rules are the top-k rules of the merged partitions.
+	 * @param partition the partition, 0 <= partition < partitions
+	 * @param partitions the number of partitions
+	 */
+	public void setPartition(int partition, int partitions) {
+		this.partition = partition;
+		this.partitions = partitions;
+	}
+	
+	/**
+	 * Set the minimum support to start with; this must be a lower bound
+	 * of the support of the k-th rule, e.g. the minimum support of a 
+	 * partial result of other partitions.
+	 * @param minsupp the minimum support
+	 */
+	public void setMinimumSupport(int minsupp) {
+		this.initialMinsupp = minsupp;
+	}
+
+	/**
+	 * Seed the algorithm with the supports of item pairs: the algorithm starts 
+	 * with the support of the k-th rule with one item in the antecedent and one 
+	 * in the consequent, and generates these rules from the pairs instead of
+	 * intersecting the tidsets of all frequent items.
+	 * @param pairSupports the supports of the item pairs
+	 */
+	public void setPairSupports(PairSupports pairSupports) {
+		this.pairSupports = pairSupports;
+	}
+
+	/**
+	 * Seed the algorithm with the supports of item pairs from a persistent
+	 * index; the index is used only if it matches the vertical database, 
+	 * and only if no pair supports are set.
+	 * @param pairSupportIndex the index of the item pairs
+	 */
+	public void setPairSupportIndex(PairSupportIndex pairSupportIndex) {
+		this.pairSupportIndex = pairSupportIndex;
+	}
+
+	/**
+	 * Start from the rules of a previous run, e.g. on a former version of the
+	 * transactions: the rules are re-scored against the vertical database, 
+	 * those that still qualify form the initial top-k rules, and the support
+	 * of the k-th of them is the minimum support to start with.
+	 * @param priorRules the rules of the previous run, null for none
+	 */
+	public void setPriorRules(Iterable<Rule> priorRules) {
+		this.priorRules = priorRules;
+	}
+
+	/**
+	 * Bootstrap the minimum support to start with from a random sample of
+	 * the transactions: the rules mined from the sample are verified on
+	 * the full data, so the result remains exact.
+	 * @param sampleBootstrap the bootstrap, null for none
+	 */
+	public void setSampleBootstrap(SampleBootstrap sampleBootstrap) {
+		this.sampleBootstrap = sampleBootstrap;
+	}
+
+	/**
+	 * Create the tidsets of candidate expansions in an arena: the tidsets
+	 * that are not retained by a candidate are released in bulk after each
+	 * expansion and reused by the following ones.
+	 * @param tidsetArena the arena, null for none
+	 */
+	public void setTidsetArena(TidsetArena tidsetArena) {
+		this.tidsetArena = tidsetArena;
+	}
+
+	/**
+	 * Create an empty tidset for an expansion.
+	 * @return the tidset
+	 */
+	private BitSet newTidset() {
+		return (tidsetArena == null) ? new BitSet() : tidsetArena.acquire();
+	}
+	
+	/**
+	 * Copy a tidset for an expansion.
+	 * @param tids the tidset
+	 * @return the copy
+	 */
+	private BitSet copyTidset(BitSet tids) {
+		return (tidsetArena == null) ? (BitSet) tids.clone() : tidsetArena.copy(tids);
+	}
+
+	/**
+	 * Keep candidates without their tidsets, which are rebuilt from the 
+	 * item tidsets when a candidate is expanded. This trades a few 
+	 * intersections for a much smaller set of candidates.
+	 * @param compactCandidates true to keep compact candidates
+	 */
+	public void setCompactCandidates(boolean compactCandidates) {
+		this.compactCandidates = compactCandidates;
+	}
+
+	/**
+	 * Bound the memory of the candidates for expansion; when the estimated
+	 * memory exceeds the budget, the candidates with the lowest support are
+	 * spilled to run files in the given directory.
+	 * @param memoryBudget the memory budget in bytes, 0 for no bound
+	 * @param spillDirectory the directory for the run files, null for the default temporary directory
+	 */
+	public void setMemoryBudget(long memoryBudget, File spillDirectory) {
+		this.memoryBudget = memoryBudget;
+		this.spillDirectory = spillDirectory;
+	}
+
+	/**
+	 * Create the queue for the candidates for expansion.
+	 * @return the queue
+	 */
+	private CandidateQueue<RuleG> createCandidates() {
+		
+		int maxSupport = vertical.transactions.size();
+		if (memoryBudget > 0) {
+			return new CandidateQueue<RuleG>(maxSupport, memoryBudget, spillDirectory, new RuleGSerializer());
+		}
+		return new CandidateQueue<RuleG>(maxSupport);
+		
+	}
+
 	/**
 	 * Run the algorithm. Different to the original version of this
 	 * method, the computed rules are returned
@@ -86,14 +264,18 @@ public class TopKAlgorithm {
 	 * @param k the value of k.
 	 * @param minConfidence the minimum confidence threshold.
 	 * @param vertical the vertical database.
+	 * @return the top-k rules; they do not reference any tidsets
 	 */
-	public PriorityQueue<RuleG> runAlgorithm(int k, double minConfidence, Vertical vertical) {
+	public PriorityQueue<Rule> runAlgorithm(int k, double minConfidence, Vertical vertical) {
 		
 		/* 
 		 * Reset statistics
 		 */
 		MemoryLogger.getInstance().reset(); // reset utility to check memory usage
 		maxCandidateCount = 0;
+		
+		evictedCount = 0;
+		evictedBytes = 0;
 
 		this.vertical = vertical;
 				
@@ -106,10 +288,25 @@ public class TopKAlgorithm {
 		/* 
 		 * Prepare internal variables and structures
 		 */
-		this.minsuppRelative = 1;
+		this.minsuppRelative = Math.max(1, initialMinsupp);
+		this.seedPairs = pairSupports;
+		if (seedPairs == null && pairSupportIndex != null && pairSupportIndex.isValid(vertical)) {
+			this.seedPairs = pairSupportIndex.getPairSupports();
+		}
+		if (seedPairs != null) {
+			this.minsuppRelative = Math.max(minsuppRelative, seedPairs.getStartSupport(k, minConfidence, vertical, false));
+		}
+		if (sampleBootstrap != null) {
+			this.minsuppRelative = Math.max(minsuppRelative, bootstrap());
+		}
 		
-		kRules = new PriorityQueue<RuleG>();
-		candidates = new RedBlackTree<RuleG>();
+		kRules = new PriorityQueue<Rule>();
+		candidates = createCandidates();
+
+		seededRules = new HashSet<Rule>();
+		if (priorRules != null) {
+			seed();
+		}
 
 		/* 
 		 * Record the start time
@@ -119,7 +316,13 @@ public class TopKAlgorithm {
 		/* 
 		 * Start the generation of rules
 		 */
-		start();
+		try {
+			start();
+			
+		} finally {
+			candidates.close();
+			
+		}
 		
 		/* 
 		 * Record the end time and return rules
@@ -130,9 +333,59 @@ public class TopKAlgorithm {
 	}
 
 	/**
-	 * Start the rule generation.
+	 * Mine the top-2k rules of a sample of the transactions and derive 
+	 * the minimum support to start with from those that qualify on the 
+	 * full data; mining more than k rules leaves room for rules whose 
+	 * confidence is lower on the full data.
+	 * @return the minimum support, or 0 if less than k rules qualify
 	 */
-	private void start() {
+	private int bootstrap() {
+		
+		TopKAlgorithm algorithm = new TopKAlgorithm();
+		algorithm.setCompactCandidates(compactCandidates);
+		
+		PriorityQueue<Rule> rules = algorithm.runAlgorithm(2 * k, minConfidence, sampleBootstrap.sample(vertical));
+		return sampleBootstrap.getStartSupport(rules, k, minConfidence, vertical, false);
+		
+	}
+
+	/**
+	 * Add the prior rules that qualify on the vertical database to the
+	 * top-k rules and raise the minimum support to the support of the 
+	 * k-th of them; as they are rules of the vertical database, the
+	 * result remains exact.
+	 */
+	private void seed() {
+		
+		List<Rule> verified = RuleVerifier.verify(priorRules, minConfidence, vertical);
+		this.minsuppRelative = Math.max(minsuppRelative, RuleVerifier.getKthSupport(verified, k, vertical.transactions.size(), false));
+		
+		// add the rules with the highest support first, and 
+		// no more rules with the minimum support than needed
+		Collections.sort(verified, Collections.reverseOrder());
+		for (Rule rule : verified) {
+			
+			if (rule.getAbsoluteSupport() < minsuppRelative || kRules.size() >= k) {
+				break;
+			}
+			
+			if (!inPartition(rule.getAntecedent()[0])) {
+				continue;
+			}
+			
+			if (seededRules.add(rule)) {
+				kRules.add(rule);
+			}
+			
+		}
+		
+	}
+
+	/**
+	 * Generate the rules with one item in the antecedent and one
+	 * item in the consequent from the frequent items.
+	 */
+	private void generateRules11() {
 		
 		/* 
 		 * We will now try to generate rules with one item in the
@@ -161,6 +414,11 @@ public class TopKAlgorithm {
 				}
 				// Get the bitset corresponding to item J
 				BitSet tidsJ = vertical.tableItemTids[itemJ];
+				
+				// skip both rules, if none of them belongs to the partition
+				if (!inPartition(itemI) && !inPartition(itemJ)) {
+					continue main2;
+				}
 
 				// Calculate the list of transaction IDs shared
 				// by I and J.
@@ -180,6 +438,69 @@ public class TopKAlgorithm {
 				}
 			}
 		}
+	}
+
+	/**
+	 * Generate the rules with one item in the antecedent and one item in
+	 * the consequent from the item pairs; the pairs are sorted by descending
+	 * support, so the generation stops at the first pair below the minimum
+	 * support. The rules get the support of the item tidsets, as the pairs
+	 * may have been counted elsewhere.
+	 * @param pairs the supports of the item pairs
+	 */
+	private void generateRules11(PairSupports pairs) {
+		
+		for (int i = 0; i < pairs.size(); i++) {
+			
+			int support = pairs.getSupport(i);
+			if (support < minsuppRelative) {
+				break;
+			}
+			
+			int itemI = pairs.getItem1(i);
+			int itemJ = pairs.getItem2(i);
+
+			// skip both rules, if none of them belongs to the partition
+			if (!inPartition(itemI) && !inPartition(itemJ)) {
+				continue;
+			}
+
+			BitSet tidsI = vertical.tableItemTids[itemI];
+			BitSet tidsJ = vertical.tableItemTids[itemJ];
+			
+			BitSet commonTids = (BitSet) tidsI.clone();
+			commonTids.and(tidsJ);
+			
+			int cardinality = commonTids.cardinality();
+			if (cardinality < minsuppRelative) {
+				continue;
+			}
+			
+			generateRuleSize11(itemI, tidsI, itemJ, tidsJ, commonTids, cardinality);
+			
+		}
+		
+	}
+
+	/**
+	 * Start the rule generation.
+	 */
+	private void start() {
+
+		if (seedPairs != null && minsuppRelative >= seedPairs.getFloor()) {
+			// the pairs contain all rules with one item in the antecedent
+			// and one item in the consequent that have enough support
+			generateRules11(seedPairs);
+		} else if (PairCounter.isSparse(vertical, minsuppRelative)) {
+			// on sparse data, the pairs are counted over the transactions;
+			// the rules are generated by descending support, starting with
+			// the support of the k-th of them
+			PairSupports pairs = PairCounter.count(vertical, minsuppRelative);
+			this.minsuppRelative = Math.max(minsuppRelative, pairs.getStartSupport(k, minConfidence, vertical, false));
+			generateRules11(pairs);
+		} else {
+			generateRules11();
+		}
 	
 		// Now we have finished checking all the rules containing 1 item
 		// in the left side and 1 in the right side,
@@ -193,6 +514,10 @@ public class TopKAlgorithm {
 				// candidates.remove(rule);
 				break;
 			}
+			// a compact or spilled candidate needs its tidsets for the expansion
+			if (rule.tids1 == null) {
+				rebuildTidsets(rule);
+			}
 			// Otherwise, we try to expand the rule
 			if (rule.expandLR) {
 				// we do it
@@ -203,6 +528,10 @@ public class TopKAlgorithm {
 				// only expand the left side.
 				expandR(rule);
 			}
+			// release the tidsets of the expansion that did not survive
+			if (tidsetArena != null) {
+				tidsetArena.release();
+			}
 			// candidates.remove(rule);
 		}
 	}
@@ -224,35 +553,49 @@ public class TopKAlgorithm {
 		itemset1[0] = item1;
 		Integer[] itemset2 = new Integer[1];
 		itemset2[0] = item2;
-		RuleG ruleLR = new RuleG(itemset1, itemset2, cardinality, tid1,
-				commonTids, item1, item2);
-		
-		// calculate the confidence
-		double confidenceIJ = ((double) cardinality) / (vertical.tableItemCount[item1]);
-		
-		// if rule i->j has minimum confidence
-		if (confidenceIJ >= minConfidence) {
-			// save the rule in current top-k rules
-			save(ruleLR, cardinality);
+		if (inPartition(item1)) {
+			RuleG ruleLR = new RuleG(itemset1, itemset2, cardinality, tid1,
+					commonTids, item1, item2);
+			
+			// calculate the confidence
+			double confidenceIJ = ((double) cardinality) / (vertical.tableItemCount[item1]);
+			
+			// if rule i->j has minimum confidence
+			if (confidenceIJ >= minConfidence) {
+				// save the rule in current top-k rules
+				save(ruleLR, cardinality);
+			}
+			// register the rule as a candidate for future expansion
+			registerAsCandidate(true, ruleLR);
 		}
-		// register the rule as a candidate for future expansion
-		registerAsCandidate(true, ruleLR);
 
-		// calculate the confidence
-		double confidenceJI = ((double) cardinality) / (vertical.tableItemCount[item2]);
-		
-		// Create the rule J ==> I
-		RuleG ruleRL = new RuleG(itemset2, itemset1, cardinality, tid2,
-				commonTids, item2, item1);
-		// if rule J->I has minimum confidence
-		if (confidenceJI >= minConfidence) {
-			// save the rule in current top-k rules
-			save(ruleRL, cardinality);
+		if (inPartition(item2)) {
+			// calculate the confidence
+			double confidenceJI = ((double) cardinality) / (vertical.tableItemCount[item2]);
+			
+			// Create the rule J ==> I
+			RuleG ruleRL = new RuleG(itemset2, itemset1, cardinality, tid2,
+					commonTids, item2, item1);
+			// if rule J->I has minimum confidence
+			if (confidenceJI >= minConfidence) {
+				// save the rule in current top-k rules
+				save(ruleRL, cardinality);
+			}
+			// register the rule as a candidate for future expansion
+			registerAsCandidate(true, ruleRL);
 		}
-		// register the rule as a candidate for future expansion
-		registerAsCandidate(true, ruleRL);
 
 	}
+	
+	/**
+	 * Check whether rules with a certain first antecedent item
+	 * belong to the partition to mine.
+	 * @param item the item
+	 * @return true if yes
+	 */
+	private boolean inPartition(int item) {
+		return partitions <= 1 || item % partitions == partition;
+	}
 
 	/**
 	 * Register a given rule in the set of candidates for future expansions
@@ -263,7 +606,20 @@ public class TopKAlgorithm {
 	private void registerAsCandidate(boolean expandLR, RuleG rule) {
 		// add the rule to candidates
 		rule.expandLR = expandLR;
-		candidates.add(rule);
+		if (compactCandidates) {
+			rule.compact();
+		}
+		if (!candidates.add(rule)) {
+			// the rule is below the minimum support and will never be expanded
+			evictedCount++;
+			evictedBytes += rule.getTidsetBytes();
+			return;
+		}
+		// the tidsets of the candidate survive the expansion
+		if (tidsetArena != null) {
+			tidsetArena.retain(rule.tids1);
+			tidsetArena.retain(rule.common);
+		}
 
 		// record the maximum number of candidates for statistics
 		if (candidates.size() >= maxCandidateCount) {
@@ -304,7 +660,7 @@ public class TopKAlgorithm {
 								ruleG.maxRight)) {
 					BitSet tidsItem = mapCountLeft.get(item);
 					if (tidsItem == null) {
-						tidsItem = new BitSet();
+						tidsItem = newTidset();
 						mapCountLeft.put(item, tidsItem);
 					}
 					tidsItem.set(tid);
@@ -314,7 +670,7 @@ public class TopKAlgorithm {
 								ruleG.maxLeft)) {
 					BitSet tidsItem = mapCountRight.get(item);
 					if (tidsItem == null) {
-						tidsItem = new BitSet();
+						tidsItem = newTidset();
 						mapCountRight.put(item, tidsItem);
 					}
 					tidsItem.set(tid);
@@ -372,7 +728,7 @@ public class TopKAlgorithm {
 				Integer itemC = entry.getKey();
 
 				// The tidset of the left itemset is calculated
-				BitSet tidsLeft = (BitSet) ruleG.tids1.clone();
+				BitSet tidsLeft = copyTidset(ruleG.tids1);
 				tidsLeft.and(vertical.tableItemTids[itemC]);
 
 				// create new left part of rule
@@ -444,7 +800,7 @@ public class TopKAlgorithm {
 					// update the tidset of the item
 					BitSet tidsItem = mapCountRight.get(item);
 					if (tidsItem == null) {
-						tidsItem = new BitSet();
+						tidsItem = newTidset();
 						mapCountRight.put(item, tidsItem);
 					}
 					tidsItem.set(tid);
@@ -491,14 +847,60 @@ public class TopKAlgorithm {
 		}
 	}
 	
+	/**
+	 * Rebuild the missing tidsets of a compact or spilled candidate from 
+	 * the item tidsets; the tidset of a single item antecedent is shared.
+	 * @param rule the candidate
+	 */
+	private void rebuildTidsets(RuleG rule) {
+		
+		Integer[] itemset1 = rule.getItemset1();
+		BitSet tids1 = vertical.tableItemTids[itemset1[0]];
+		if (itemset1.length > 1) {
+			tids1 = (BitSet) tids1.clone();
+			for (int i = 1; i < itemset1.length; i++) {
+				tids1.and(vertical.tableItemTids[itemset1[i]]);
+			}
+		}
+		rule.tids1 = tids1;
+		
+		if (rule.common == null) {
+			BitSet common = (BitSet) tids1.clone();
+			for (Integer item : rule.getItemset2()) {
+				common.and(vertical.tableItemTids[item]);
+			}
+			rule.common = common;
+		}
+		
+	}
+
+	/**
+	 * Evict all candidates below the current minimum support, so that
+	 * their tidsets can be released before the main loop reaches them.
+	 */
+	private void purgeCandidates() {
+		List<RuleG> evicted = new ArrayList<RuleG>();
+		evictedCount += candidates.removeBelow(minsuppRelative, evicted);
+		
+		for (RuleG candidate : evicted) {
+			evictedBytes += candidate.getTidsetBytes();
+		}
+	}
+
 	/**
 	 * Save a rule to the current set of top-k rules.
 	 * @param rule the rule to be saved
 	 * @param support the support of the rule
 	 */
 	private void save(RuleG rule, int support) {
-		// We add the rule to the set of top-k rules
-		kRules.add(rule);
+		// We add the rule to the set of top-k rules; the rule record
+		// does not reference the tidsets of the rule
+		Rule record = rule.toRule();
+		// a rule found again has been seeded from the prior rules
+		if (seededRules.remove(record)) {
+			return;
+		}
+		kRules.add(record);
 		// if the size becomes larger than k
 		if (kRules.size() > k) {
 			// if the support of the rule that we haved added is higher than
@@ -513,6 +915,8 @@ public class TopKAlgorithm {
 			// we raise the minimum support to the lowest support in the 
 			// set of top-k rules
 			this.minsuppRelative = kRules.peek().getAbsoluteSupport();
+			// candidates below the raised minimum support will never be expanded
+			purgeCandidates();
 		}
 	}
 
@@ -547,6 +951,15 @@ public class TopKAlgorithm {
 		return false;
 	}
 	
+	/**
+	 * Get the rules of the last execution as a summary, which can be 
+	 * merged with the results of other executions.
+	 * @return the summary
+	 */
+	public TopKSummary getSummary() {
+		return new TopKSummary(k, kRules);
+	}
+	
 	/**
 	 * Print statistics about the last algorithm execution.
 	 */
@@ -556,6 +969,15 @@ public class TopKAlgorithm {
 		System.out.println("Rules count: " + kRules.size());
 		System.out.println("Memory : " + MemoryLogger.getInstance().getMaxMemory() + " mb");
 		System.out.println("Total time : " + (timeEnd - timeStart) + " ms");
+		System.out.println("Candidates max count : " + maxCandidateCount);
+		System.out.println("Candidates evicted : " + evictedCount + " (~" + (evictedBytes / 1024) + " kb)");
+		System.out.println("Candidates spilled : " + candidates.getSpilledCount() + " in " + candidates.getRunCount() + " run files");
+		if (tidsetArena != null) {
+			System.out.println("Tidsets reused : " + tidsetArena.getReusedCount() + " of " + tidsetArena.getAcquiredCount());
+		}
+		if (sampleBootstrap != null) {
+			System.out.println("Sample rules verified : " + sampleBootstrap.getVerifiedRules() + " of " + sampleBootstrap.getSampleRules());
+		}
 		System.out.println("===================================================");
 	}
 
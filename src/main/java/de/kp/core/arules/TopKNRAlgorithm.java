@@ -17,10 +17,13 @@ package de.kp.core.arules;
 * SPMF. If not, see <http://www.gnu.org/licenses/>.
 */
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -62,6 +65,37 @@ public class TopKNRAlgorithm {
 	 */
 	int maxCandidateCount = 0;
 	
+	long evictedCount = 0;  // candidates evicted or rejected below the minimum support
+	long evictedBytes = 0;  // estimated tidset memory released by eviction
+
+	/*
+	 * Memory budget for the candidates; candidates beyond 
+	 * the budget are spilled to the spill directory
+	 */
+	long memoryBudget = 0;
+	File spillDirectory;
+	
+	// keep candidates without their tidsets
+	boolean compactCandidates = false;
+	
+	// the arena for the tidsets of an expansion, null for none
+	TidsetArena tidsetArena;
+	
+	// the supports of item pairs to seed the algorithm
+	PairSupports pairSupports;
+	
+	// the persistent supports of item pairs to seed the algorithm
+	PairSupportIndex pairSupportIndex;
+	
+	// the supports of item pairs of the current run
+	PairSupports seedPairs;
+	
+	// the bootstrap of the minimum support from a sample
+	SampleBootstrap sampleBootstrap;
+	
+	// the rules of a previous run to start with
+	Iterable<Rule> priorRules;
+	
 	int notAdded = 0;          // rules eliminated by strategy 1
 	int totalremovedCount = 0; // rules eliminated by strategy 2
 	
@@ -79,8 +113,9 @@ public class TopKNRAlgorithm {
 	/* 
 	 * Internal variables
 	 */
-	RedBlackTree<RuleG> kRules;      // the top k rules found until now 
-	RedBlackTree<RuleG> candidates;  // the candidates for expansion
+	ArrayRedBlackTree<Rule> kRules;      // the top k rules found until now 
+	RuleIndex ruleIndex;                 // the top k rules by support and confidence
+	CandidateQueue<RuleG> candidates;  // the candidates for expansion
 	
 	int k=0;              // will contain k + delta
 	int minsuppRelative;  // minimum support threshold that will be raised dynamically
@@ -96,15 +131,121 @@ public class TopKNRAlgorithm {
 	 */
 	public TopKNRAlgorithm() {}
 
+	/**
+	 * Seed the algorithm with the supports of item pairs: the algorithm starts 
+	 * with the support of the k-th rule with one item in the antecedent and one 
+	 * in the consequent, and generates these rules from the pairs instead of
+	 * intersecting the tidsets of all frequent items.
+	 * @param pairSupports the supports of the item pairs
+	 */
+	public void setPairSupports(PairSupports pairSupports) {
+		this.pairSupports = pairSupports;
+	}
+
+	/**
+	 * Seed the algorithm with the supports of item pairs from a persistent
+	 * index; the index is used only if it matches the vertical database, 
+	 * and only if no pair supports are set.
+	 * @param pairSupportIndex the index of the item pairs
+	 */
+	public void setPairSupportIndex(PairSupportIndex pairSupportIndex) {
+		this.pairSupportIndex = pairSupportIndex;
+	}
+
+	/**
+	 * Start from the rules of a previous run, e.g. on a former version of the
+	 * transactions: the rules are re-scored against the vertical database, 
+	 * those that still qualify form the initial top-k rules, and the support
+	 * of the k-th of them is the minimum support to start with.
+	 * @param priorRules the rules of the previous run, null for none
+	 */
+	public void setPriorRules(Iterable<Rule> priorRules) {
+		this.priorRules = priorRules;
+	}
+
+	/**
+	 * Bootstrap the minimum support to start with from a random sample of
+	 * the transactions: the rules mined from the sample are verified on
+	 * the full data, so the result remains exact.
+	 * @param sampleBootstrap the bootstrap, null for none
+	 */
+	public void setSampleBootstrap(SampleBootstrap sampleBootstrap) {
+		this.sampleBootstrap = sampleBootstrap;
+	}
+
+	/**
+	 * Create the tidsets of candidate expansions in an arena: the tidsets
+	 * that are not retained by a candidate are released in bulk after each
+	 * expansion and reused by the following ones.
+	 * @param tidsetArena the arena, null for none
+	 */
+	public void setTidsetArena(TidsetArena tidsetArena) {
+		this.tidsetArena = tidsetArena;
+	}
+
+	/**
+	 * Create an empty tidset for an expansion.
+	 * @return the tidset
+	 */
+	private BitSet newTidset() {
+		return (tidsetArena == null) ? new BitSet() : tidsetArena.acquire();
+	}
+	
+	/**
+	 * Copy a tidset for an expansion.
+	 * @param tids the tidset
+	 * @return the copy
+	 */
+	private BitSet copyTidset(BitSet tids) {
+		return (tidsetArena == null) ? (BitSet) tids.clone() : tidsetArena.copy(tids);
+	}
+
+	/**
+	 * Keep candidates without their tidsets, which are rebuilt from the 
+	 * item tidsets when a candidate is expanded. This trades a few 
+	 * intersections for a much smaller set of candidates.
+	 * @param compactCandidates true to keep compact candidates
+	 */
+	public void setCompactCandidates(boolean compactCandidates) {
+		this.compactCandidates = compactCandidates;
+	}
+
+	/**
+	 * Bound the memory of the candidates for expansion; when the estimated
+	 * memory exceeds the budget, the candidates with the lowest support are
+	 * spilled to run files in the given directory.
+	 * @param memoryBudget the memory budget in bytes, 0 for no bound
+	 * @param spillDirectory the directory for the run files, null for the default temporary directory
+	 */
+	public void setMemoryBudget(long memoryBudget, File spillDirectory) {
+		this.memoryBudget = memoryBudget;
+		this.spillDirectory = spillDirectory;
+	}
+
+	/**
+	 * Create the queue for the candidates for expansion.
+	 * @return the queue
+	 */
+	private CandidateQueue<RuleG> createCandidates() {
+		
+		int maxSupport = vertical.transactions.size();
+		if (memoryBudget > 0) {
+			return new CandidateQueue<RuleG>(maxSupport, memoryBudget, spillDirectory, new RuleGSerializer());
+		}
+		return new CandidateQueue<RuleG>(maxSupport);
+		
+	}
+
 	/**
 	 * Run the algorithm.
 	 * @param k the value of k.
 	 * @param minConfidence the minimum confidence threshold.
 	 * @param vertical the vertical database.
 	 * @param delta the delta parameter
-	 * @return a RedBlackTree containing approximately k rules.
+	 * @return an ArrayRedBlackTree containing approximately k rules; they
+	 * do not reference any tidsets
 	 */
-	public RedBlackTree<RuleG> runAlgorithm(int k, double minConfidence, Vertical vertical, int delta) {
+	public ArrayRedBlackTree<Rule> runAlgorithm(int k, double minConfidence, Vertical vertical, int delta) {
 
 		/* 
 		 * Reset statistics
@@ -120,6 +261,9 @@ public class TopKNRAlgorithm {
 		 */
 		maxCandidateCount = 0;
 		
+		evictedCount = 0;
+		evictedBytes = 0;
+		
 		totalCandidatesConsideredFromR = 0;
 		totalRules11considered = 0;
 		
@@ -141,12 +285,29 @@ public class TopKNRAlgorithm {
 		 * Set the minimum support threshold that will be raised dynamically
 		 */
 		this.minsuppRelative = 1;
+		this.seedPairs = pairSupports;
+		if (seedPairs == null && pairSupportIndex != null && pairSupportIndex.isValid(vertical)) {
+			this.seedPairs = pairSupportIndex.getPairSupports();
+		}
+		if (seedPairs != null) {
+			// rules subsumed by other rules are not counted
+			this.minsuppRelative = Math.max(minsuppRelative, seedPairs.getStartSupport(this.k, minConfidence, vertical, true));
+		}
+		if (sampleBootstrap != null) {
+			// rules subsumed by other rules are not counted
+			this.minsuppRelative = Math.max(minsuppRelative, bootstrap());
+		}
 		
 		/* 
 		 * Initialize internal data structures
 		 */
-		kRules     = new RedBlackTree<RuleG>();
-		candidates = new RedBlackTree<RuleG>();
+		kRules     = new ArrayRedBlackTree<Rule>();
+		ruleIndex  = new RuleIndex();
+		candidates = createCandidates();
+
+		if (priorRules != null) {
+			seed();
+		}
 
 		/* 
 		 * Record the start time
@@ -156,7 +317,13 @@ public class TopKNRAlgorithm {
 		/* 
 		 * Start the generation of rules
 		 */
-		start();
+		try {
+			start();
+			
+		} finally {
+			candidates.close();
+			
+		}
 		
 		/* 
 		 * Record the end time
@@ -179,9 +346,47 @@ public class TopKNRAlgorithm {
 
 
 	/**
-	 * Start the rule generation.
+	 * Mine the top-2k non-redundant rules of a sample of the transactions 
+	 * and derive the minimum support to start with from those that qualify 
+	 * on the full data; mining more than k rules leaves room for rules whose 
+	 * confidence is lower on the full data.
+	 * @return the minimum support, or 0 if less than k rules qualify
 	 */
-	private void start() {
+	private int bootstrap() {
+		
+		TopKNRAlgorithm algorithm = new TopKNRAlgorithm();
+		algorithm.setCompactCandidates(compactCandidates);
+		
+		ArrayRedBlackTree<Rule> rules = algorithm.runAlgorithm(2 * k, minConfidence, sampleBootstrap.sample(vertical), 0);
+		return sampleBootstrap.getStartSupport(rules, k, minConfidence, vertical, true);
+		
+	}
+
+	/**
+	 * Add the prior rules that qualify on the vertical database to the
+	 * top-k rules and raise the minimum support to the support of the 
+	 * k-th of them; rules with the same support and antecedent support
+	 * are counted once, as they may be subsumed by a single rule. Rules
+	 * found again are rejected by Strategy 1.
+	 */
+	private void seed() {
+		
+		List<Rule> verified = RuleVerifier.verify(priorRules, minConfidence, vertical);
+		this.minsuppRelative = Math.max(minsuppRelative, RuleVerifier.getKthSupport(verified, k, vertical.transactions.size(), true));
+		
+		for (Rule rule : verified) {
+			if (rule.getAbsoluteSupport() >= minsuppRelative) {
+				add(rule);
+			}
+		}
+		
+	}
+
+	/**
+	 * Generate the rules with one item in the antecedent and one
+	 * item in the consequent from the frequent items.
+	 */
+	private void generateRules11() {
 
 		int maxItem = vertical.max;
 		
@@ -224,6 +429,64 @@ main2:		for(int itemJ=itemI+1; itemJ <= maxItem; itemJ++){
 				}
 			}
 		}
+	}
+
+	/**
+	 * Generate the rules with one item in the antecedent and one item in
+	 * the consequent from the item pairs; the pairs are sorted by descending
+	 * support, so the generation stops at the first pair below the minimum
+	 * support. The rules get the support of the item tidsets, as the pairs
+	 * may have been counted elsewhere.
+	 * @param pairs the supports of the item pairs
+	 */
+	private void generateRules11(PairSupports pairs) {
+		
+		for (int i = 0; i < pairs.size(); i++) {
+			
+			int support = pairs.getSupport(i);
+			if (support < minsuppRelative) {
+				break;
+			}
+			
+			int itemI = pairs.getItem1(i);
+			int itemJ = pairs.getItem2(i);
+
+			BitSet tidsI = vertical.tableItemTids[itemI];
+			BitSet tidsJ = vertical.tableItemTids[itemJ];
+			
+			BitSet commonTids = (BitSet) tidsI.clone();
+			commonTids.and(tidsJ);
+			
+			int cardinality = commonTids.cardinality();
+			if (cardinality < minsuppRelative) {
+				continue;
+			}
+			
+			generateRuleSize11(itemI, tidsI, itemJ, tidsJ, commonTids, cardinality);
+			
+		}
+		
+	}
+
+	/**
+	 * Start the rule generation.
+	 */
+	private void start() {
+
+		if (seedPairs != null && minsuppRelative >= seedPairs.getFloor()) {
+			// the pairs contain all rules with one item in the antecedent
+			// and one item in the consequent that have enough support
+			generateRules11(seedPairs);
+		} else if (PairCounter.isSparse(vertical, minsuppRelative)) {
+			// on sparse data, the pairs are counted over the transactions;
+			// the rules are generated by descending support, starting with
+			// the support of the k-th of them
+			PairSupports pairs = PairCounter.count(vertical, minsuppRelative);
+			this.minsuppRelative = Math.max(minsuppRelative, pairs.getStartSupport(k, minConfidence, vertical, true));
+			generateRules11(pairs);
+		} else {
+			generateRules11();
+		}
 	
 		// Now we have finished checking all the rules containing 1 item
 		// in the left side and 1 in the right side,
@@ -237,6 +500,10 @@ main2:		for(int itemJ=itemI+1; itemJ <= maxItem; itemJ++){
 //				candidates.remove(rule);
 				break;
 			}
+			// a compact or spilled candidate needs its tidsets for the expansion
+			if (rule.tids1 == null) {
+				rebuildTidsets(rule);
+			}
 			// Otherwise, we try to expand the rule
 			totalCandidatesConsideredFromR++;
 			// If the rule should be expanded by both left and ride side
@@ -249,6 +516,10 @@ main2:		for(int itemJ=itemI+1; itemJ <= maxItem; itemJ++){
 				// only expand the left side.
 				expandR(rule);
 			}
+			// release the tidsets of the expansion that did not survive
+			if (tidsetArena != null) {
+				tidsetArena.release();
+			}
 //			candidates.remove(rule);
 		}
 	}
@@ -305,7 +576,20 @@ main2:		for(int itemJ=itemI+1; itemJ <= maxItem; itemJ++){
 	private void registerAsCandidate(boolean expandLR, RuleG rule) {
 		// add the rule to candidates
 		rule.expandLR = expandLR;
-		candidates.add(rule);
+		if (compactCandidates) {
+			rule.compact();
+		}
+		if (!candidates.add(rule)) {
+			// the rule is below the minimum support and will never be expanded
+			evictedCount++;
+			evictedBytes += rule.getTidsetBytes();
+			return;
+		}
+		// the tidsets of the candidate survive the expansion
+		if (tidsetArena != null) {
+			tidsetArena.retain(rule.tids1);
+			tidsetArena.retain(rule.common);
+		}
 		
 		// record the maximum number of candidates for statistics
 		if(candidates.size() >= maxCandidateCount){
@@ -341,7 +625,7 @@ main2:		for(int itemJ=itemI+1; itemJ <= maxItem; itemJ++){
 				if(item > ruleG.maxLeft &&!containsLEX(ruleG.getItemset2(),item, ruleG.maxRight)){
 					BitSet tidsItem = mapCountLeft.get(item);
 					if(tidsItem == null){
-						tidsItem = new BitSet();
+						tidsItem = newTidset();
 						mapCountLeft.put(item, tidsItem);
 					}
 					tidsItem.set(tid);	
@@ -349,7 +633,7 @@ main2:		for(int itemJ=itemI+1; itemJ <= maxItem; itemJ++){
 				if(item > ruleG.maxRight && !containsLEX(ruleG.getItemset1(),item, ruleG.maxLeft)){
 					BitSet tidsItem = mapCountRight.get(item);
 					if(tidsItem == null){
-						tidsItem = new BitSet();
+						tidsItem = newTidset();
 						mapCountRight.put(item, tidsItem);
 					}
 					tidsItem.set(tid);	
@@ -402,7 +686,7 @@ main2:		for(int itemJ=itemI+1; itemJ <= maxItem; itemJ++){
         		Integer itemC = entry.getKey();
         		
 				// The tidset of the left itemset is calculated
-				BitSet tidsLeft = (BitSet)ruleG.tids1.clone();
+				BitSet tidsLeft = copyTidset(ruleG.tids1);
 				tidsLeft.and(vertical.tableItemTids[itemC]);
 
 				// create new left part of rule
@@ -467,7 +751,7 @@ main2:		for(int itemJ=itemI+1; itemJ <= maxItem; itemJ++){
 					// update the tidset of the item
 					BitSet tidsItem = mapCountRight.get(item);
 					if(tidsItem == null){
-						tidsItem = new BitSet();
+						tidsItem = newTidset();
 						mapCountRight.put(item, tidsItem);
 					}
 					tidsItem.set(tid);	
@@ -511,91 +795,162 @@ main2:		for(int itemJ=itemI+1; itemJ <= maxItem; itemJ++){
 	}
 
 	/**
-	 * Save a rule to the current set of top-k rules.
-	 * @param rule the rule to be saved
-	 * @param support the support of the rule
+	 * Rebuild the missing tidsets of a compact or spilled candidate from 
+	 * the item tidsets; the tidset of a single item antecedent is shared.
+	 * @param rule the candidate
 	 */
-	private void save(RuleG rule, int support) {
+	private void rebuildTidsets(RuleG rule) {
 		
-		// We get a pointer to the node in the redblacktree for the
-		// rule having a support just lower than support+1.
-		RedBlackTree<RuleG>.Node lowerRuleNode = kRules.lowerNode(new RuleG(null, null, support+1, null, null, 0, 0));	
-		
-		// Applying Strategy 1 and Strategy 2
-		Set<RuleG> rulesToDelete = new HashSet<RuleG>();
-		// for each rule "lowerRuleNode" having the save support as the rule received as parameter
-		while(lowerRuleNode != null &&
-				lowerRuleNode.key != null 
-				&& lowerRuleNode.key.getAbsoluteSupport() == support){
-			// Strategy 1: 
-			// if the confidence is the same and the rule "lowerRuleNode" subsume the new rule
-			// then we don't add the new rule
-			if(rule.getConfidence() == lowerRuleNode.key.getConfidence() && subsume(lowerRuleNode.key, rule)){
-				notAdded++; // for stats
-//				System.out.println("The rule  " + rule + " was not added because it is subsumed by : " + lowerRuleNode.key);
-				return ;
+		Integer[] itemset1 = rule.getItemset1();
+		BitSet tids1 = vertical.tableItemTids[itemset1[0]];
+		if (itemset1.length > 1) {
+			tids1 = (BitSet) tids1.clone();
+			for (int i = 1; i < itemset1.length; i++) {
+				tids1.and(vertical.tableItemTids[itemset1[i]]);
 			}
-			// Strategy 2:
-			// if the confidence is the same and the rule "lowerRuleNode" subsume the new rule
-			// then we don't add the new rule
-			if(rule.getConfidence() == lowerRuleNode.key.getConfidence() && subsume(rule, lowerRuleNode.key)){
-				// add the rule to the set of rules to be deleted
-				rulesToDelete.add(lowerRuleNode.key);
-				totalremovedCount++;
+		}
+		rule.tids1 = tids1;
+		
+		if (rule.common == null) {
+			BitSet common = (BitSet) tids1.clone();
+			for (Integer item : rule.getItemset2()) {
+				common.and(vertical.tableItemTids[item]);
 			}
-			// check the next rule
-			lowerRuleNode = kRules.lowerNode(lowerRuleNode.key);
+			rule.common = common;
 		}
 		
-		// delete the rules to be deleted
-		for(RuleG ruleX : rulesToDelete){
-//			System.out.println("REMOVED  " + ruleX + " because subsumed by : " + rule);
-			kRules.remove(ruleX);
+	}
+
+	/**
+	 * Evict all candidates below the current minimum support, so that
+	 * their tidsets can be released before the main loop reaches them.
+	 */
+	private void purgeCandidates() {
+		List<RuleG> evicted = new ArrayList<RuleG>();
+		evictedCount += candidates.removeBelow(minsuppRelative, evicted);
+		
+		for (RuleG candidate : evicted) {
+			evictedBytes += candidate.getTidsetBytes();
 		}
-				
-		// Now the rule "rule" has passed the test of Strategy 1 already,
-		// so we add it to the set of top-k rules
-		kRules.add(rule);
+	}
+
+	/**
+	 * Save a rule to the current set of top-k rules.
+	 * @param candidate the rule to be saved
+	 * @param support the support of the rule
+	 */
+	private void save(RuleG candidate, int support) {
+		
+		// the rule record does not reference the tidsets of the rule
+		if (!add(candidate.toRule())) {
+			return;
+		}
+		
 		// if there is more than k rules
 		if(kRules.size() > k ){
 			// and if the support of the rule is higher than minsup
 			if(support > this.minsuppRelative ){
 				// recursively find the rule with the lowest support and remove it
 				// until there is just k rules left
-				RuleG lower;
+				Rule lower;
 				do{
-					lower = kRules.lower(new RuleG(null, null, this.minsuppRelative+1, null, null, 0, 0));
+					lower = kRules.lower(this.minsuppRelative+1);
 					if(lower == null){
 						break;  /// IMPORTANT
 					}
-					kRules.remove(lower);
+					remove(lower);
 				}while(kRules.size() > k);
 			}
 			// set the minimum support to the support of the rule having
 			// the lowest suport.
 			this.minsuppRelative = kRules.minimum().getAbsoluteSupport();
+			// candidates below the raised minimum support will never be expanded
+			purgeCandidates();
 		}
 //		System.out.println(this.minsuppRelative);
 	}
 
+	/**
+	 * Add a rule to the current set of top-k rules, unless it is subsumed
+	 * by one of them; the rules subsumed by the rule are removed.
+	 * @param rule the rule to be added
+	 * @return true if the rule was added
+	 */
+	private boolean add(Rule rule) {
+		
+		// Applying Strategy 1 and Strategy 2
+		Set<Rule> rulesToDelete = new HashSet<Rule>();
+		// for each rule "sameRule" having the same support and confidence as the
+		// rule received as parameter; rules with a different confidence can
+		// neither subsume the new rule nor be subsumed by it
+		for(Rule sameRule : ruleIndex.get(rule.getAbsoluteSupport(), rule.getConfidence())){
+			// Strategy 1: 
+			// if the rule "sameRule" subsume the new rule
+			// then we don't add the new rule
+			if(subsume(sameRule, rule)){
+				notAdded++; // for stats
+//				System.out.println("The rule  " + rule + " was not added because it is subsumed by : " + sameRule);
+				return false;
+			}
+			// Strategy 2:
+			// if the new rule subsume the rule "sameRule"
+			// then we remove the rule "sameRule"
+			if(subsume(rule, sameRule)){
+				// add the rule to the set of rules to be deleted
+				rulesToDelete.add(sameRule);
+				totalremovedCount++;
+			}
+		}
+		
+		// delete the rules to be deleted
+		for(Rule ruleX : rulesToDelete){
+//			System.out.println("REMOVED  " + ruleX + " because subsumed by : " + rule);
+			remove(ruleX);
+		}
+				
+		// Now the rule "rule" has passed the test of Strategy 1 already,
+		// so we add it to the set of top-k rules
+		kRules.add(rule);
+		ruleIndex.add(rule);
+		
+		return true;
+		
+	}
+
+	/**
+	 * Remove a rule from the current set of top-k rules.
+	 * @param rule the rule to be removed
+	 */
+	private void remove(Rule rule) {
+		kRules.remove(rule);
+		ruleIndex.remove(rule);
+	}
+	
 	/**
 	 * Check if a rule subsumes another.
 	 * @param rule1 a rule
 	 * @param rule2 a second rule
 	 * @return true if rule1 subsume rule2, otherwise false.
 	 */
-	private boolean subsume(RuleG rule1, RuleG rule2) {
+	private boolean subsume(Rule rule1, Rule rule2) {
 //		if(rule1 == rule2 || rule1.getConfidence() != rule2.getConfidence() ||
 //				   rule1.getAbsoluteSupport() != rule2.getAbsoluteSupport()){
 //			return false;
 //		}
 
 		// We check first the size of the itemsets
-		if(rule1.getItemset1().length <= rule2.getItemset1().length && rule1.getItemset2().length >=rule2.getItemset2().length){
+		if(rule1.getAntecedent().length <= rule2.getAntecedent().length && rule1.getConsequent().length >=rule2.getConsequent().length){
+			// Then we check the signatures: the antecedent of rule1 must be a subset
+			// of the antecedent of rule2, and the consequent of rule2 a subset of the
+			// consequent of rule1; most rules are rejected here
+			if((rule1.getAntecedentSignature() & ~rule2.getAntecedentSignature()) != 0
+					|| (rule2.getConsequentSignature() & ~rule1.getConsequentSignature()) != 0){
+				return false;
+			}
 			// After that we check the inclusion relationships between
 			// the itemsets			
-			boolean cond1 = containsOrEquals(rule2.getItemset1(), rule1.getItemset1());
-			boolean cond2 = containsOrEquals(rule1.getItemset2(), rule2.getItemset2());
+			boolean cond1 = containsOrEquals(rule2.getAntecedent(), rule1.getAntecedent());
+			boolean cond2 = containsOrEquals(rule1.getConsequent(), rule2.getConsequent());
 			// If all the conditions are met the method returns true.
 			if(cond1 && cond2){
 				return true;
@@ -612,24 +967,20 @@ main2:		for(int itemJ=itemI+1; itemJ <= maxItem; itemJ++){
 	 * @param itemset2 the second itemset
 	 * @return true if the first itemset contains the second itemset
 	 */
-	private boolean containsOrEquals(Integer itemset1 [], Integer itemset2 []){
-			// for each item in the first itemset
-loop1:		for(int i =0; i < itemset2.length; i++){
-				// for each item in the second itemset
-				for(int j =0; j < itemset1.length; j++){
-					// if the current item in itemset1 is equal to the one in itemset2
-					// search for the next one in itemset1
-					if(itemset1[j] == itemset2[i]){
-						continue loop1;
-				    // if the current item in itemset1 is larger
-					// than the current item in itemset2, then
-					// stop because of the lexical order.
-					}else if(itemset1[j] > itemset2[i]){
-						return false;
-					}
+	private boolean containsOrEquals(int itemset1 [], int itemset2 []){
+			// both itemsets are merged in a single pass
+			int j = 0;
+			// for each item in the second itemset
+			for(int i =0; i < itemset2.length; i++){
+				// skip the smaller items of the first itemset
+				while(j < itemset1.length && itemset1[j] < itemset2[i]){
+					j++;
 				}
 				// means that an item was not found
-				return false;
+				if(j == itemset1.length || itemset1[j] != itemset2[i]){
+					return false;
+				}
+				j++;
 			}
 			// if all items were found, return true.
 	 		return true;
@@ -676,6 +1027,8 @@ loop1:		for(int i =0; i < itemset2.length; i++){
 			// take out the minimum until the size is k
 			kRules.popMinimum();
 		}
+		// the index is only used while mining
+		ruleIndex.clear();
 		// set the minimum support to the minimum of the remaining rules 
 		minsuppRelative = kRules.minimum().getAbsoluteSupport();
 	}
@@ -690,8 +1043,17 @@ loop1:		for(int i =0; i < itemset2.length; i++){
 		System.out.println("Total time : " + ((timeEnd - timeStart) / 1000) + " s");
 		System.out.println("Memory : " + MemoryLogger.getInstance().getMaxMemory() + " mb");
 //		System.out.println("Candidates count : " + candidates.size());
+		System.out.println("Candidates max count : " + maxCandidateCount);
+		System.out.println("Candidates evicted : " + evictedCount + " (~" + (evictedBytes / 1024) + " kb)");
+		System.out.println("Candidates spilled : " + candidates.getSpilledCount() + " in " + candidates.getRunCount() + " run files");
 		System.out.println("Rules eliminated by strategy 1: " + notAdded);
 		System.out.println("Rules eliminated by strategy 2: " + totalremovedCount);	
+		if (tidsetArena != null) {
+			System.out.println("Tidsets reused : " + tidsetArena.getReusedCount() + " of " + tidsetArena.getAcquiredCount());
+		}
+		if (sampleBootstrap != null) {
+			System.out.println("Sample rules verified : " + sampleBootstrap.getVerifiedRules() + " of " + sampleBootstrap.getSampleRules());
+		}
 		System.out.println("--------------------------------");
 		System.out.println("===================================================");
 	}
@@ -0,0 +1,164 @@
+package de.kp.core.arules;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A partial top-k result that can be merged with the partial results of other
+ * workers. The summary keeps the k rules with the highest support together with
+ * all rules that tie with the k-th rule on support; as rules are ordered totally
+ * and deterministically, merging the same partial results in any order results
+ * in the same summary.
+ * 
+ * @see Rule
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class TopKSummary implements Serializable {
+
+	private static final long serialVersionUID = -6190386240912470215L;
+
+	private int k;
+	
+	// the rules in ascending order
+	private TreeSet<Rule> rules = new TreeSet<Rule>();
+	
+	/**
+	 * Constructor
+	 * @param k the value of k
+	 */
+	public TopKSummary(int k) {
+		this.k = k;
+	}
+	
+	/**
+	 * Constructor
+	 * @param k the value of k
+	 * @param rules the rules to start with
+	 */
+	public TopKSummary(int k, Collection<Rule> rules) {
+		this(k);
+		addAll(rules);
+	}
+	
+	/**
+	 * Get the value of k.
+	 * @return k
+	 */
+	public int getK() {
+		return k;
+	}
+	
+	/**
+	 * Get the number of rules in this summary; this may be more than k
+	 * due to rules with the same support as the k-th rule.
+	 * @return the number of rules
+	 */
+	public int size() {
+		return rules.size();
+	}
+	
+	/**
+	 * Get the minimum support a rule must have to enter this summary.
+	 * @return the support, or 0 if the summary holds less than k rules
+	 */
+	public int getMinimumSupport() {
+		return (rules.size() < k) ? 0 : rules.first().getAbsoluteSupport();
+	}
+	
+	/**
+	 * Add a rule to this summary.
+	 * @param rule the rule
+	 * @return true if the rule was added
+	 */
+	public boolean add(Rule rule) {
+		
+		if (rule.getAbsoluteSupport() < getMinimumSupport()) {
+			return false;
+		}
+		
+		if (!rules.add(rule)) {
+			return false;
+		}
+		
+		trim();
+		return rules.contains(rule);
+		
+	}
+	
+	/**
+	 * Add rules to this summary.
+	 * @param rules the rules
+	 */
+	public void addAll(Collection<Rule> rules) {
+		for (Rule rule : rules) {
+			add(rule);
+		}
+	}
+	
+	/**
+	 * Merge another summary into this summary; the value of k of this
+	 * summary is retained.
+	 * @param summary the other summary
+	 * @return this summary
+	 */
+	public TopKSummary merge(TopKSummary summary) {
+		addAll(summary.rules);
+		return this;
+	}
+
+	/**
+	 * Get the rules of this summary in descending order.
+	 * @return the rules
+	 */
+	public List<Rule> getRules() {
+		return new ArrayList<Rule>(rules.descendingSet());
+	}
+	
+	/**
+	 * Remove the rules with the lowest support, as long as at 
+	 * least k rules with a higher support remain.
+	 */
+	private void trim() {
+		
+		while (rules.size() > k) {
+			
+			int support = rules.first().getAbsoluteSupport();
+			
+			int count = 0;
+			for (Rule rule : rules) {
+				if (rule.getAbsoluteSupport() != support) break;
+				count++;
+			}
+			
+			if (rules.size() - count < k) break;
+			
+			for (int i = 0; i < count; i++) {
+				rules.pollFirst();
+			}
+			
+		}
+		
+	}
+	
+}
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
+import java.util.Random;
 
 public class Vertical implements Serializable {
 
@@ -81,6 +82,103 @@ public class Vertical implements Serializable {
 		this.transactions.add(trans);
 	}
 	
+	/**
+	 * Get the IDs of the transactions that contain all items of an itemset;
+	 * an item that is unknown to this database, e.g. an item of a rule mined 
+	 * from another database, is contained in no transaction.
+	 * @param itemset the itemset, not empty
+	 * @return the transaction IDs
+	 */
+	public BitSet getTids(int[] itemset) {
+		
+		for (int item : itemset) {
+			if (item < 0 || item >= tableItemTids.length || tableItemTids[item] == null) {
+				return new BitSet();
+			}
+		}
+		
+		BitSet tids = (BitSet) tableItemTids[itemset[0]].clone();
+		for (int i = 1; i < itemset.length; i++) {
+			tids.and(tableItemTids[itemset[i]]);
+		}
+		
+		return tids;
+		
+	}
+	
+	/**
+	 * Get the support of an itemset.
+	 * @param itemset the itemset, not empty
+	 * @return the number of transactions that contain all items
+	 */
+	public int getSupport(int[] itemset) {
+		return getTids(itemset).cardinality();
+	}
+	
+	/**
+	 * Draw a random sample of the transactions. The sample keeps the IDs of
+	 * the sampled transactions; the other transactions are replaced by a
+	 * single empty transaction, and the item tidsets and supports are
+	 * restricted to the sampled transactions. The sampled transactions are
+	 * copied, as the algorithms remove infrequent items from them.
+	 * 
+	 * @param fraction the probability of a transaction to be sampled
+	 * @param random the random generator
+	 * @return the sample
+	 */
+	public Vertical sample(double fraction, Random random) {
+		
+		BitSet sampled = new BitSet();
+		List<Transaction> sampleTransactions = new ArrayList<Transaction>(transactions.size());
+		
+		Transaction empty = new Transaction(0);
+		for (int tid = 0; tid < transactions.size(); tid++) {
+			
+			if (random.nextDouble() < fraction) {
+				sampled.set(tid);
+				
+				Transaction transaction = transactions.get(tid);
+				Transaction copy = new Transaction(transaction.getItems().size());
+				
+				for (Integer item : transaction.getItems()) {
+					copy.addItem(item);
+				}
+				
+				copy.setId(transaction.getId());
+				sampleTransactions.add(copy);
+				
+			} else {
+				sampleTransactions.add(empty);
+			}
+			
+		}
+		
+		BitSet[] sampleItemTids = new BitSet[tableItemTids.length];
+		int[] sampleItemCount = new int[tableItemCount.length];
+		
+		for (int item = 0; item < tableItemTids.length; item++) {
+			
+			if (tableItemTids[item] == null) continue;
+			
+			sampleItemTids[item] = (BitSet) tableItemTids[item].clone();
+			sampleItemTids[item].and(sampled);
+			
+			sampleItemCount[item] = sampleItemTids[item].cardinality();
+			
+		}
+		
+		Vertical sample = new Vertical();
+
+		sample.tableItemTids  = sampleItemTids;
+		sample.tableItemCount = sampleItemCount;
+		
+		sample.transactions = sampleTransactions;
+		sample.max = max;
+		
+		return sample;
+		
+	}
+	
 	private void initialize(int size) {
 		
 		/* 
@@ -33,6 +33,8 @@ public class AItemset extends AbstractOrderedItemset{
 	public int[] itemset; 
 	/** The set of transactions/sequences id containing this itemset */
 	public Set<Integer> transactionsIds = new HashSet<Integer>();
+	/** The support of this itemset if it is not given by the transaction ids (-1 otherwise) */
+	private int support = -1;
 
 	/**
 	 * Constructor
@@ -57,10 +59,30 @@ public class AItemset extends AbstractOrderedItemset{
 	}
 
 	/**
-	 * Get the support of this itemset (as an integer)
+	 * Constructor for an itemset whose support is known without
+	 * its transaction ids (e.g. a closed itemset from a stream).
+	 * @param items an array of items that should be added to the new itemset
+	 * @param support the support of the itemset
+	 */
+	public AItemset(int [] items, int support){
+		this.itemset = items;
+		this.support = support;
+	}
+
+	/**
+	 * Get the support of this itemset (as an integer); this is the explicitly
+	 * set support or, if there is none, the number of transaction ids
 	 */
 	public int getAbsoluteSupport() {
-		return transactionsIds.size();
+		return (support < 0) ? transactionsIds.size() : support;
+	}
+
+	/**
+	 * Set the support of this itemset without providing its transaction ids
+	 * @param support the support
+	 */
+	public void setAbsoluteSupport(int support) {
+		this.support = support;
 	}
 
 
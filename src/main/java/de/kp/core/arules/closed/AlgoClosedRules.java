@@ -21,9 +21,21 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * This is an algorithm for generating closed association rules
@@ -39,6 +51,25 @@ import java.util.Set;
  * 
  * This algorithm can save the result to a file or keep it into memory
  * if the user provides a null output file path to the runAlgorithm() method.
+ * <br/><br/>
+ * 
+ * The rules of different closed itemsets are independent of each other; 
+ * with a parallelism > 1, they are generated by a fork-join pool, where each
+ * task buffers the rules of its closed itemsets. If order stability is
+ * requested, the buffers are saved in the order of the closed itemsets
+ * after all tasks completed; otherwise each buffer is saved as soon as
+ * its task is done.
+ * <br/><br/>
+ * 
+ * Alternatively, the rules can be pulled one by one from an iterator. They 
+ * are generated lazily, one closed itemset at a time, so only the rules
+ * of the current closed itemset are held in memory.
+ * <br/><br/>
+ * 
+ * Finally, the algorithm can be restricted to the k rules with the highest
+ * support and confidence. Closed itemsets are then processed by decreasing
+ * support, and the support and confidence of the k-th best rule found so far
+ * raise the thresholds for the remaining closed itemsets.
  *
  * @author Philippe Fournier-Viger
  */
@@ -47,7 +78,8 @@ public class AlgoClosedRules {
 	
 	// parameters
 	private AItemsets closedItemsets;   // closed itemsets
-	private double minconf;    // minimum confidence threshold
+	private ClosedItemsetIndex index;   // index to determine the support of itemsets
+	protected double minconf;    // minimum confidence threshold
 	
 	// closed association rules generated
 	private ClosedRules rules;
@@ -60,6 +92,14 @@ public class AlgoClosedRules {
 	// object to write the output file if the user wish to write to a file
 	BufferedWriter writer = null;
 	
+	// the number of threads used to generate rules
+	private int parallelism = 1;
+	// indicates whether rules are saved in the order of the closed itemsets
+	private boolean orderStable = false;
+	
+	// the maximum number of closed itemsets processed by a single task
+	private static final int GRAIN = 4;
+	
 	
 	public AlgoClosedRules(){
 		
@@ -67,6 +107,7 @@ public class AlgoClosedRules {
 
 	public ClosedRules runAlgorithm(AItemsets closedItemsets, double minconf, String outputFile) throws IOException {
 		this.closedItemsets = closedItemsets;
+		this.index = new ClosedItemsetIndex(closedItemsets);
 		
 		// if the user want to keep the result into memory
 		if(outputFile == null){
@@ -82,33 +123,20 @@ public class AlgoClosedRules {
 		
 		this.minconf = minconf;
 		
-		//For each frequent itemset of size >=2
-		for(int k=2; k< closedItemsets.getLevels().size(); k++){
-			for(AItemset lk : closedItemsets.getLevels().get(k)){
-				// create H1
-				Set<AItemset> H1 = new HashSet<AItemset>();
-				for(Integer item : lk.getItems()){  // THIS PART WAS CHANGED
-					AItemset itemset = new AItemset(item);
-					H1.add(itemset);
-				}
-				
-				Set<AItemset> H1_for_recursion  = new HashSet<AItemset>();
-				for(AItemset hm_P_1 : H1){
-					AItemset itemset_Lk_minus_hm_P_1 = lk.cloneItemSetMinusAnItemset(hm_P_1);
-
-					int supLkMinus_hm_P_1 = calculateSupport(itemset_Lk_minus_hm_P_1);   // THIS COULD BE DONE ANOTHER WAY ?
-					int supLk = calculateSupport(lk);                                            // IT COULD PERHAPS BE IMPROVED....
-					double conf = ((double)supLk) / ((double)supLkMinus_hm_P_1);
-					
-					if(conf >= minconf){
-						ClosedRule rule = new ClosedRule(itemset_Lk_minus_hm_P_1, hm_P_1, lk.getAbsoluteSupport(), conf);
-						save(rule);
-						H1_for_recursion.add(hm_P_1);// for recursion
-					}
+		if(parallelism > 1){
+			runParallel();
+		
+		}else{
+			// the rules generated from a single closed itemset
+			List<ClosedRule> buffer = new ArrayList<ClosedRule>();
+			
+			//For each frequent itemset of size >=2
+			for(int k=2; k< closedItemsets.getLevels().size(); k++){
+				for(AItemset lk : closedItemsets.getLevels().get(k)){
+					generateRules(lk, buffer);
+					saveAll(buffer);
+					buffer.clear();
 				}
-
-				// call apGenRules
-				apGenrules(k, 1, lk, H1_for_recursion);
 			}
 		}
 		
@@ -123,66 +151,426 @@ public class AlgoClosedRules {
 		return rules;
 	}
 
-	private void apGenrules(int k, int m, AItemset lk, Set<AItemset> Hm) throws IOException {
+	/**
+	 * Run the algorithm in top-k mode; the rules are kept in memory.
+	 * 
+	 * All rules of a closed itemset have the support of this itemset, so once
+	 * k rules have been found, closed itemsets with a lower support than the
+	 * k-th rule cannot contribute anymore. A closed itemset with the same support
+	 * only contributes rules with a higher confidence than the k-th rule, and as
+	 * the confidence decreases when items move from the antecedent to the 
+	 * consequent, this confidence also cuts the generation of consequents. 
+	 * 
+	 * @param closedItemsets the closed itemsets
+	 * @param minconf the minimum confidence threshold
+	 * @param k the number of rules
+	 * @return the (at most) k rules ordered by decreasing support and confidence; 
+	 *         among rules tied with the k-th rule, the first ones found are kept
+	 */
+	public ClosedRules runAlgorithmTopK(AItemsets closedItemsets, double minconf, int k) {
+		this.closedItemsets = closedItemsets;
+		this.index = new ClosedItemsetIndex(closedItemsets);
+		
+		this.minconf = minconf;
+		
+		startTimestamp = System.currentTimeMillis();
+		
+		// collect the closed itemsets of size >= 2 by decreasing support
+		List<AItemset> itemsets = new ArrayList<AItemset>();
+		for(int level=2; level< closedItemsets.getLevels().size(); level++){
+			itemsets.addAll(closedItemsets.getLevels().get(level));
+		}
+		Collections.sort(itemsets, new Comparator<AItemset>() {
+			public int compare(AItemset itemset1, AItemset itemset2) {
+				return itemset2.getAbsoluteSupport() - itemset1.getAbsoluteSupport();
+			}
+		});
+
+		// the best rules found so far, with the k-th best rule at the head
+		PriorityQueue<ClosedRule> kRules = new PriorityQueue<ClosedRule>(Math.max(1, k), TOPK_ORDER);
+		List<ClosedRule> buffer = new ArrayList<ClosedRule>();
+		
+		for(AItemset lk : itemsets){
+			double threshold = minconf;
+			
+			if(kRules.size() >= k){
+				ClosedRule lowest = kRules.peek();
+				// no remaining closed itemset can provide a better rule
+				if(lk.getAbsoluteSupport() < lowest.getAbsoluteSupport()){
+					break;
+				}
+				// only rules with a higher confidence are of interest
+				if(lk.getAbsoluteSupport() == lowest.getAbsoluteSupport()){
+					threshold = Math.max(threshold, lowest.getConfidence());
+				}
+			}
+			
+			generateRules(lk, threshold, buffer);
+			for(ClosedRule rule : buffer){
+				if(kRules.size() < k){
+					kRules.add(rule);
+				
+				}else if(TOPK_ORDER.compare(rule, kRules.peek()) > 0){
+					kRules.poll();
+					kRules.add(rule);
+				}
+			}
+			buffer.clear();
+		}
+		
+		// order the rules from the best to the k-th best
+		List<ClosedRule> sorted = new ArrayList<ClosedRule>(kRules);
+		Collections.sort(sorted, Collections.reverseOrder(TOPK_ORDER));
+		
+		rules = new ClosedRules("Top-k closed association rules");
+		for(ClosedRule rule : sorted){
+			rules.addRule(rule);
+		}
+		ruleCount = rules.getRulesCount();
+		
+		endTimeStamp = System.currentTimeMillis();
+		return rules;
+	}
+	
+	/**
+	 * Orders rules by support and then by confidence.
+	 */
+	private static final Comparator<ClosedRule> TOPK_ORDER = new Comparator<ClosedRule>() {
+		public int compare(ClosedRule rule1, ClosedRule rule2) {
+			int compare = rule1.getAbsoluteSupport() - rule2.getAbsoluteSupport();
+			if(compare != 0){
+				return compare;
+			}
+			return Double.compare(rule1.getConfidence(), rule2.getConfidence());
+		}
+	};
+
+	/**
+	 * Get an iterator over the closed association rules; the rules are
+	 * generated while the iterator advances.
+	 * @param closedItemsets the closed itemsets
+	 * @param minconf the minimum confidence threshold
+	 * @return an iterator over the rules
+	 */
+	public Iterator<ClosedRule> iterator(AItemsets closedItemsets, double minconf) {
+		this.closedItemsets = closedItemsets;
+		this.index = new ClosedItemsetIndex(closedItemsets);
+		
+		this.minconf = minconf;
+		return new ClosedRuleIterator();
+	}
+	
+	/**
+	 * An iterator that generates the rules of the next closed itemset 
+	 * whenever the rules of the current one have been consumed.
+	 */
+	private class ClosedRuleIterator implements Iterator<ClosedRule> {
+		
+		// the current level and position within this level
+		private int level = 2;
+		private int position = 0;
+		
+		// the rules of the current closed itemset
+		private final List<ClosedRule> buffer = new ArrayList<ClosedRule>();
+		private int next = 0;
+		
+		public boolean hasNext() {
+			while(next == buffer.size()){
+				AItemset lk = nextItemset();
+				if(lk == null){
+					return false;
+				}
+				buffer.clear();
+				next = 0;
+				
+				generateRules(lk, buffer);
+			}
+			return true;
+		}
+
+		public ClosedRule next() {
+			if(!hasNext()){
+				throw new NoSuchElementException();
+			}
+			ClosedRule rule = buffer.get(next);
+			// release the rule for garbage collection
+			buffer.set(next++, null);
+			return rule;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException("Not supported.");
+		}
+		
+		/**
+		 * Get the next closed itemset of size >= 2.
+		 * @return the closed itemset or null if there is none left
+		 */
+		private AItemset nextItemset() {
+			List<List<AItemset>> levels = closedItemsets.getLevels();
+			while(level < levels.size()){
+				if(position < levels.get(level).size()){
+					return levels.get(level).get(position++);
+				}
+				level++;
+				position = 0;
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Set the number of threads used to generate rules; a value of 1
+	 * (the default) generates all rules in the calling thread.
+	 * @param parallelism the number of threads
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Request that rules generated in parallel are saved in the same
+	 * order as by a single thread.
+	 * @param orderStable true if the order has to be preserved
+	 */
+	public void setOrderStable(boolean orderStable) {
+		this.orderStable = orderStable;
+	}
+
+	/**
+	 * Generate the rules of all closed itemsets of size >= 2 with a fork-join pool.
+	 */
+	private void runParallel() throws IOException {
+		// collect the closed itemsets of size >= 2
+		List<AItemset> itemsets = new ArrayList<AItemset>();
+		for(int k=2; k< closedItemsets.getLevels().size(); k++){
+			itemsets.addAll(closedItemsets.getLevels().get(k));
+		}
+		
+		int grains = (itemsets.size() + GRAIN - 1) / GRAIN;
+		
+		// one rule buffer per task, in the order of the closed itemsets;
+		// the buffers are only kept if the order has to be preserved
+		List<List<ClosedRule>> buffers = null;
+		if(orderStable){
+			buffers = new ArrayList<List<ClosedRule>>(Collections.<List<ClosedRule>>nCopies(grains, null));
+		}
+		
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new RuleTask(itemsets, 0, grains, buffers));
+		
+		} catch(RuleWriteException e) {
+			throw e.getCause();
+			
+		} finally {
+			pool.shutdown();
+		}
+		
+		if(orderStable){
+			for(List<ClosedRule> buffer : buffers){
+				saveAll(buffer);
+			}
+		}
+	}
+	
+	/**
+	 * A task that generates the rules of a range of closed itemsets; the range
+	 * is split until it covers a single buffer of at most GRAIN itemsets.
+	 */
+	private class RuleTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 6011640251330371429L;
+
+		private final List<AItemset> itemsets;
+		private final List<List<ClosedRule>> buffers;
+		
+		// the range of buffers handled by this task
+		private final int from;
+		private final int to;
+		
+		RuleTask(List<AItemset> itemsets, int from, int to, List<List<ClosedRule>> buffers) {
+			this.itemsets = itemsets;
+			this.buffers = buffers;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if(to - from > 1){
+				int middle = (from + to) >>> 1;
+				invokeAll(new RuleTask(itemsets, from, middle, buffers), new RuleTask(itemsets, middle, to, buffers));
+				return;
+			}
+			
+			List<ClosedRule> buffer = new ArrayList<ClosedRule>();
+			
+			int end = Math.min(itemsets.size(), (from + 1) * GRAIN);
+			for(int i = from * GRAIN; i < end; i++){
+				generateRules(itemsets.get(i), buffer);
+			}
+			
+			if(orderStable){
+				buffers.set(from, buffer);
+			
+			}else{
+				try {
+					saveAll(buffer);
+				
+				} catch (IOException e) {
+					throw new RuleWriteException(e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Wrapper to pass an IOException of a task to the calling thread.
+	 */
+	private static class RuleWriteException extends RuntimeException {
+
+		private static final long serialVersionUID = -3186543214383717262L;
+
+		RuleWriteException(IOException cause) {
+			super(cause);
+		}
+
+		@Override
+		public IOException getCause() {
+			return (IOException)super.getCause();
+		}
+	}
+
+	/**
+	 * Generate the closed association rules of a single closed itemset.
+	 * @param lk the closed itemset (of size >= 2)
+	 * @param rules the list where the generated rules are added
+	 */
+	protected void generateRules(AItemset lk, List<ClosedRule> rules) {
+		generateRules(lk, minconf, rules);
+	}
+	
+	/**
+	 * Generate the closed association rules of a single closed itemset
+	 * using a certain confidence threshold.
+	 * @param lk the closed itemset (of size >= 2)
+	 * @param minconf the minimum confidence threshold
+	 * @param rules the list where the generated rules are added
+	 */
+	private void generateRules(AItemset lk, double minconf, List<ClosedRule> rules) {
+		int k = lk.size();
+		// the support of lk is the support of every rule generated from it
+		int supLk = calculateSupport(lk);
+		
+		// create H1
+		Set<AItemset> H1 = new LinkedHashSet<AItemset>();
+		for(Integer item : lk.getItems()){  // THIS PART WAS CHANGED
+			AItemset itemset = new AItemset(item);
+			H1.add(itemset);
+		}
+		
+		Set<AItemset> H1_for_recursion  = new LinkedHashSet<AItemset>();
+		for(AItemset hm_P_1 : H1){
+			AItemset itemset_Lk_minus_hm_P_1 = lk.cloneItemSetMinusAnItemset(hm_P_1);
+
+			int supLkMinus_hm_P_1 = calculateSupport(itemset_Lk_minus_hm_P_1);   // THIS COULD BE DONE ANOTHER WAY ?
+			double conf = ((double)supLk) / ((double)supLkMinus_hm_P_1);
+			
+			if(conf >= minconf){
+				ClosedRule rule = new ClosedRule(itemset_Lk_minus_hm_P_1, hm_P_1, supLk, conf);
+				rules.add(rule);
+				H1_for_recursion.add(hm_P_1);// for recursion
+			}
+		}
+
+		// call apGenRules
+		apGenrules(k, 1, lk, supLk, minconf, H1_for_recursion, rules);
+	}
+
+	private void apGenrules(int k, int m, AItemset lk, int supLk, double minconf, Set<AItemset> Hm, List<ClosedRule> rules) {
 //		System.out.println(" " + lk.toString() + "  " + Hm.toString());
 		if(k > m+1){
 			Set<AItemset> Hm_plus_1 = generateCandidateSizeK(Hm);
-			Set<AItemset> Hm_plus_1_for_recursion = new HashSet<AItemset>();
+			Set<AItemset> Hm_plus_1_for_recursion = new LinkedHashSet<AItemset>();
 			for(AItemset hm_P_1 : Hm_plus_1){
 				AItemset itemset_Lk_minus_hm_P_1 = lk.cloneItemSetMinusAnItemset(hm_P_1);
 
 //				calculateSupport(hm_P_1);   
 				int supLkMinus_hm_P_1 = calculateSupport(itemset_Lk_minus_hm_P_1);   // THIS COULD BE DONE ANOTHER WAY ?
-				int supLk = calculateSupport(lk);                                            // IT COULD PERHAPS BE IMPROVED....
 				double conf = ((double)supLk) / ((double)supLkMinus_hm_P_1);
 				
 				if(conf >= minconf){
-					ClosedRule rule = new ClosedRule(itemset_Lk_minus_hm_P_1, hm_P_1, lk.getAbsoluteSupport(), conf);
-					save(rule);
+					ClosedRule rule = new ClosedRule(itemset_Lk_minus_hm_P_1, hm_P_1, supLk, conf);
+					rules.add(rule);
 					Hm_plus_1_for_recursion.add(hm_P_1);
 				}
 			}
-			apGenrules(k, m+1, lk, Hm_plus_1_for_recursion);
+			apGenrules(k, m+1, lk, supLk, minconf, Hm_plus_1_for_recursion, rules);
 		}
 	}
 
-	private int calculateSupport(AItemset itemsetToTest) {  // THIS WAS CHANGED
-		for(List<AItemset> list : closedItemsets.getLevels()){
-			if(list.size() == 0  || list.get(0).size() < itemsetToTest.size()){
-				continue; // it is not useful to consider itemsets that are smaller  
-				          // than itemsetToTest.size
-			}
-			for(AItemset itemset : list){
-				if(itemset.containsAll(itemsetToTest)){
-					return itemset.getAbsoluteSupport();
-				}
-			}
-		} 
-		return 0;
+	protected int calculateSupport(AItemset itemsetToTest) {  // THIS WAS CHANGED
+		// the support of the smallest closed itemset containing 
+		// itemsetToTest is provided by the index
+		return index.getSupport(itemsetToTest);
 	}
 
+	/**
+	 * Generate the consequents of size k from the consequents of size k-1. 
+	 * 
+	 * Two consequents can only be joined if they share all items except the last
+	 * one; the consequents are therefore grouped by this prefix and only joined
+	 * within their group. The subsets of a candidate are looked up in a hash set,
+	 * so the cost depends on the number of joined pairs and not on the square
+	 * of the number of consequents.
+	 * 
+	 * @param levelK_1 the consequents of size k-1
+	 * @return the candidate consequents of size k
+	 */
 	protected Set<AItemset> generateCandidateSizeK(Set<AItemset> levelK_1) {
-		Set<AItemset> candidates = new HashSet<AItemset>();
+		Set<AItemset> candidates = new LinkedHashSet<AItemset>();
 
-		// For each itemset I1 and I2 of level k-1
-		for(AItemset itemset1 : levelK_1){
-			for(AItemset itemset2 : levelK_1){
-				// If I1 is smaller than I2 according to lexical order and
-				// they share all the same items except the last one.
-				Integer missing = itemset1.allTheSameExceptLastItem(itemset2);
-				if(missing != null ){
+		// group the itemsets of level k-1 by their prefix and
+		// register the itemsets for the subset check
+		Map<ItemsetKey, List<AItemset>> groups = new LinkedHashMap<ItemsetKey, List<AItemset>>();
+		Set<ItemsetKey> keysK_1 = new HashSet<ItemsetKey>();
+		
+		for(AItemset itemset : levelK_1){
+			int[] items = itemset.getItems();
+			keysK_1.add(new ItemsetKey(items));
+			
+			ItemsetKey prefix = new ItemsetKey(Arrays.copyOf(items, items.length - 1));
+			List<AItemset> group = groups.get(prefix);
+			if(group == null){
+				group = new ArrayList<AItemset>();
+				groups.put(prefix, group);
+			}
+			group.add(itemset);
+		}
+		
+		for(List<AItemset> group : groups.values()){
+			if(group.size() < 2){
+				continue;
+			}
+			// the itemsets of a group are ordered by their last item, so
+			// I1 is lexically smaller than I2 for every pair (I1, I2) below
+			Collections.sort(group, LAST_ITEM_ORDER);
+			
+			for(int i = 0; i < group.size(); i++){
+				AItemset itemset1 = group.get(i);
+				for(int j = i + 1; j < group.size(); j++){
+					AItemset itemset2 = group.get(j);
+					
 					// Create a new candidate by combining itemset1 and itemset2
 					int newItemset[] = new int[itemset1.size()+1];
 					System.arraycopy(itemset1.itemset, 0, newItemset, 0, itemset1.size());
 					newItemset[itemset1.size()] = itemset2.getItems()[itemset2.size() -1];
-					AItemset candidate = new AItemset(newItemset);
 					
-//					System.out.println(" " + itemset1.toString() + " + " + itemset2.toString() + " = " + candidate.toString());
-	
 					// The candidate is tested to see if its subsets of size k-1 are included in
 					// level k-1 (they are frequent).
-					if(allSubsetsOfSizeK_1AreFrequent(candidate,levelK_1)){
-						candidates.add(candidate);
+					if(allSubsetsOfSizeK_1AreFrequent(newItemset, keysK_1)){
+						candidates.add(new AItemset(newItemset));
 					}
 				}
 			}
@@ -190,28 +578,49 @@ public class AlgoClosedRules {
 		return candidates;
 	}
 	
-	protected boolean allSubsetsOfSizeK_1AreFrequent(AItemset candidate, Set<AItemset> levelK_1) {
+	/**
+	 * Check whether all subsets of size k-1 of a candidate of size k are
+	 * contained in level k-1.
+	 * @param candidate the items of the candidate
+	 * @param keysK_1 the keys of the itemsets of level k-1
+	 * @return true if all subsets are contained
+	 */
+	private boolean allSubsetsOfSizeK_1AreFrequent(int[] candidate, Set<ItemsetKey> keysK_1) {
 		// To generate all the set of size K-1, we will proceed
-		// by removing each item, one by one.
-		if(candidate.size() == 1){
-			return true;
-		}
-		for(Integer item : candidate.getItems()){
-			AItemset subset = candidate.cloneItemSetMinusOneItem(item);
-			boolean found = false;
-			for(AItemset itemset : levelK_1){
-				if(itemset.isEqualTo(subset)){
-					found = true;
-					break;
-				}
-			}
-			if(found == false){
+		// by removing each item, one by one. The subsets without 
+		// one of the last two items are the joined itemsets.
+		for(int position = 0; position < candidate.length - 2; position++){
+			int[] subset = new int[candidate.length - 1];
+			System.arraycopy(candidate, 0, subset, 0, position);
+			System.arraycopy(candidate, position + 1, subset, position, candidate.length - position - 1);
+			
+			if(keysK_1.contains(new ItemsetKey(subset)) == false){
 				return false;
 			}
 		}
 		return true;
 	}
 	
+	/**
+	 * Orders itemsets of the same size by their last item.
+	 */
+	private static final Comparator<AItemset> LAST_ITEM_ORDER = new Comparator<AItemset>() {
+		public int compare(AItemset itemset1, AItemset itemset2) {
+			int last1 = itemset1.getItems()[itemset1.size() - 1];
+			int last2 = itemset2.getItems()[itemset2.size() - 1];
+			return last1 < last2 ? -1 : (last1 == last2 ? 0 : 1);
+		}
+	};
+	
+	/**
+	 * Save the rules of a buffer; rules may be saved from different threads.
+	 * @param buffer the rules
+	 */
+	private synchronized void saveAll(List<ClosedRule> buffer) throws IOException {
+		for(ClosedRule rule : buffer){
+			save(rule);
+		}
+	}
 	
 	private void save(ClosedRule rule) throws IOException {
 		// increase the number of rule found
@@ -252,7 +661,6 @@ public class AlgoClosedRules {
 			
 			writer.write(buffer.toString());
 			writer.newLine();
-			writer.flush();
 		}// otherwise the result is kept into memory
 		else{
 			rules.addRule(rule);
@@ -0,0 +1,336 @@
+package de.kp.core.arules.closed;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import de.kp.core.arules.Vertical;
+
+/**
+ * This is an implementation of the CHARM algorithm for mining closed itemsets
+ * from a vertical database, as proposed by M.J. Zaki and C.-J. Hsiao (2002),
+ * "CHARM: An Efficient Algorithm for Closed Itemset Mining", SIAM SDM 2002.
+ * <br/><br/>
+ * 
+ * Different to the CloStream algorithm, the closed itemsets are computed from
+ * the tidsets of a Vertical in a single batch, and the result can directly be
+ * used as input for the generation of closed association rules.
+ * <br/><br/>
+ * 
+ * The search is divided into the equivalence classes of the frequent items, 
+ * which are processed by a fork-join pool. To keep these classes independent,
+ * the first level does not remove items subsumed by another class; an item is
+ * instead skipped by its own class if a preceding item has the same tidset. 
+ * Itemsets that are found more than once are merged at the end by their tidset, 
+ * keeping the largest, i.e. the closed, itemset.
+ *
+ * @see AlgoClosedRules
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class CharmAlgorithm {
+
+	// for statistics
+	long startTimestamp = 0; // last execution start time
+	long endTimeStamp = 0;   // last execution end time
+	private int itemsetCount; // the number of closed itemsets found
+	
+	// the minimum support threshold
+	private int minsuppRelative;
+
+	// the number of threads used to process the equivalence classes
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	
+	public CharmAlgorithm() {
+	}
+
+	/**
+	 * Set the number of threads used to process the equivalence classes
+	 * of the first level; the default is the number of processors.
+	 * @param parallelism the number of threads
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * Run the algorithm.
+	 * @param vertical the vertical database
+	 * @param minsuppRelative the minimum support threshold (an absolute number of transactions)
+	 * @return the frequent closed itemsets, organized by level
+	 */
+	public AItemsets runAlgorithm(Vertical vertical, int minsuppRelative) {
+
+		startTimestamp = System.currentTimeMillis();
+		this.minsuppRelative = Math.max(1, minsuppRelative);
+		
+		/*
+		 * Determine the frequent items ordered by increasing support; 
+		 * note, that item 0 does not exist
+		 */
+		final List<Node> level1 = new ArrayList<Node>();
+		for(int item = 1; item <= vertical.max; item++){
+			BitSet tids = vertical.tableItemTids[item];
+			if(tids == null || vertical.tableItemCount[item] < this.minsuppRelative){
+				continue;
+			}
+			level1.add(new Node(new int[]{item}, tids, vertical.tableItemCount[item]));
+		}
+		Collections.sort(level1, SUPPORT_ORDER);
+		
+		/*
+		 * Process the equivalence class of each frequent item
+		 */
+		List<Callable<List<Node>>> tasks = new ArrayList<Callable<List<Node>>>();
+		for(int i = 0; i < level1.size(); i++){
+			final int position = i;
+			tasks.add(new Callable<List<Node>>() {
+				public List<Node> call() {
+					return processClass(level1, position);
+				}
+			});
+		}
+		
+		/*
+		 * Merge the itemsets found for the same tidset
+		 */
+		Map<BitSet, Node> closed = new HashMap<BitSet, Node>();
+		
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+		try {
+			for(Future<List<Node>> future : pool.invokeAll(tasks)){
+				for(Node node : future.get()){
+					Node other = closed.get(node.tids);
+					if(other == null || other.items.length < node.items.length){
+						closed.put(node.tids, node);
+					}
+				}
+			}
+		
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The mining of closed itemsets was interrupted.", e);
+			
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("The mining of closed itemsets failed.", e.getCause());
+			
+		} finally {
+			pool.shutdown();
+		}
+		
+		/*
+		 * Build the result
+		 */
+		AItemsets result = new AItemsets("Closed itemsets");
+		for(Node node : closed.values()){
+			// the rule generation only needs the support
+			AItemset itemset = new AItemset(node.items, node.support);
+			result.addItemset(itemset, itemset.size());
+		}
+
+		itemsetCount = result.getItemsetsCount();
+		endTimeStamp = System.currentTimeMillis();
+		
+		return result;
+		
+	}
+
+	/**
+	 * Process the equivalence class of a frequent item of the first level.
+	 * @param level1 the frequent items ordered by increasing support
+	 * @param i the position of the item
+	 * @return the itemsets found within this class
+	 */
+	private List<Node> processClass(List<Node> level1, int i) {
+		List<Node> result = new ArrayList<Node>();
+
+		Node first = level1.get(i);
+		/*
+		 * If a preceding item has a tidset containing the tidset of this
+		 * item, CHARM removes this item when processing the preceding one;
+		 * as items are ordered by support, both tidsets are equal
+		 */
+		for(int h = 0; h < i; h++){
+			Node other = level1.get(h);
+			if(other.support == first.support && other.tids.equals(first.tids)){
+				return result;
+			}
+		}
+		
+		// the item is extended, so it is copied
+		Node xi = new Node(first.items, first.tids, first.support);
+		extend(xi, level1, i + 1, false, result);
+		
+		return result;
+	}
+	
+	/**
+	 * Recursively extend a list of nodes sharing the same prefix.
+	 * @param nodes the nodes; nodes are set to null when they are removed
+	 * @param result the list where closed itemsets are added
+	 */
+	private void extend(List<Node> nodes, List<Node> result) {
+		for(int i = 0; i < nodes.size(); i++){
+			Node xi = nodes.get(i);
+			if(xi != null){
+				extend(xi, nodes, i + 1, true, result);
+			}
+		}
+	}
+	
+	/**
+	 * Combine a node with the nodes following it (see the paper for details).
+	 * @param xi the node
+	 * @param nodes the nodes of the same equivalence class
+	 * @param from the position of the first node to combine with
+	 * @param remove true if subsumed nodes are removed from the list of nodes
+	 * @param result the list where closed itemsets are added
+	 */
+	private void extend(Node xi, List<Node> nodes, int from, boolean remove, List<Node> result) {
+		// the new equivalence class of xi; the items of its nodes 
+		// are completed when xi will not change anymore
+		List<Node> pi = new ArrayList<Node>();
+		
+		for(int j = from; j < nodes.size(); j++){
+			Node xj = nodes.get(j);
+			if(xj == null){
+				continue;
+			}
+			
+			BitSet tids = (BitSet)xi.tids.clone();
+			tids.and(xj.tids);
+			
+			int support = tids.cardinality();
+			if(support < minsuppRelative){
+				continue;
+			}
+			
+			if(support == xi.support){
+				// t(Xi) = t(Xj) or t(Xi) is a subset of t(Xj): 
+				// all itemsets containing Xi also contain Xj
+				xi.items = union(xi.items, xj.items);
+				if(support == xj.support && remove){
+					nodes.set(j, null);
+				}
+				
+			}else{
+				// t(Xi) is a superset of t(Xj) or both are different
+				pi.add(new Node(xj.items, tids, support));
+				if(support == xj.support && remove){
+					nodes.set(j, null);
+				}
+			}
+		}
+		
+		if(pi.isEmpty() == false){
+			for(Node node : pi){
+				node.items = union(xi.items, node.items);
+			}
+			Collections.sort(pi, SUPPORT_ORDER);
+			extend(pi, result);
+		}
+		
+		result.add(xi);
+		
+	}
+	
+	/**
+	 * Build the union of two lexically ordered itemsets.
+	 * @param items1 the first itemset
+	 * @param items2 the second itemset
+	 * @return the union as a lexically ordered itemset
+	 */
+	private int[] union(int[] items1, int[] items2) {
+		int[] union = new int[items1.length + items2.length];
+		
+		int i = 0, j = 0, k = 0;
+		while(i < items1.length && j < items2.length){
+			if(items1[i] < items2[j]){
+				union[k++] = items1[i++];
+			
+			}else if(items1[i] > items2[j]){
+				union[k++] = items2[j++];
+			
+			}else{
+				union[k++] = items1[i++];
+				j++;
+			}
+		}
+		while(i < items1.length){
+			union[k++] = items1[i++];
+		}
+		while(j < items2.length){
+			union[k++] = items2[j++];
+		}
+		
+		if(k == union.length){
+			return union;
+		}
+		int[] result = new int[k];
+		System.arraycopy(union, 0, result, 0, k);
+		
+		return result;
+	}
+	
+	/**
+	 * Orders nodes by increasing support.
+	 */
+	private static final Comparator<Node> SUPPORT_ORDER = new Comparator<Node>() {
+		public int compare(Node node1, Node node2) {
+			return node1.support - node2.support;
+		}
+	};
+	
+	/**
+	 * An itemset together with its tidset.
+	 */
+	private static class Node {
+		
+		int[] items;  // the items ordered lexically
+		BitSet tids;  // the tidset of the itemset
+		int support;  // the cardinality of the tidset
+
+		Node(int[] items, BitSet tids, int support) {
+			this.items = items;
+			this.tids = tids;
+			this.support = support;
+		}
+	}
+	
+	/**
+	 * Print statistics about the last algorithm execution.
+	 */
+	public void printStats() {
+		System.out.println("=============  CHARM - STATS =============");
+		System.out.println(" Minsup : " + minsuppRelative);
+		System.out.println(" Closed itemsets count : " + itemsetCount);
+		System.out.println(" Total time ~ " + (endTimeStamp - startTimestamp) + " ms");
+		System.out.println("===================================================");
+	}
+	
+}
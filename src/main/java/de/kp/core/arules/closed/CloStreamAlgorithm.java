@@ -17,11 +17,13 @@ package de.kp.core.arules.closed;
 */
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * This is an implementation of the CloStream algorithm for mining
@@ -41,8 +43,20 @@ public class CloStreamAlgorithm {
 	// a table to store the closed itemsets
 	List<LItemset> tableClosed = new ArrayList<LItemset>();
 	
-	//
+	// a map to associate each item with the ids (cids) of the closed itemsets containing it
 	Map<Integer, List<Integer>> cidListMap = new HashMap<Integer, List<Integer>>();
+	
+	// an index of the closed itemsets ordered by support: 
+	// Key: support  Value: the cids of the closed itemsets having this support
+	TreeMap<Integer, Set<Integer>> supportIndex = new TreeMap<Integer, Set<Integer>>();
+	
+	// the listeners that are notified about the closed itemsets changed by a transaction
+	List<CloStreamListener> listeners = new ArrayList<CloStreamListener>();
+	
+	// the closed itemsets as array-based itemsets, organized by level; this store
+	// holds the items and current supports of the (non empty) closed itemsets of
+	// the table, and is used by AlgoClosedRules directly
+	AItemsets closedByLevel = new AItemsets("Closed itemsets");
 
 	/**
 	 * Constructor that also initialize the algorithm
@@ -65,6 +79,9 @@ public class CloStreamAlgorithm {
 		// associate itemsets with cids.
 		Map<LItemset, Integer> tableTemp = new HashMap<LItemset, Integer>();
 		
+		// the closed itemsets created or updated by this transaction
+		List<LItemset> updated = new ArrayList<LItemset>();
+		
 		// Line 02 of the pseudocode in the article
 		// We add the transaction in a temporary table
 		tableTemp.put(transaction, 0); 
@@ -130,13 +147,21 @@ public class CloStreamAlgorithm {
 			if(x.isEqualTo(ctc)){
 				// we have to increase its support
 				ctc.increaseTransactionCount();
+				// and to move it to the next level of the support index
+				updateSupport(c, ctc.getAbsoluteSupport() - 1);
+				updated.add(ctc);
 			}else{ 
-				// otherwise the itemset "x" is added to the table of closed itemsets
-				tableClosed.add(x);
+				// otherwise the itemset "x" is added to the table of closed itemsets;
 				// its support count is set to the support of ctc + 1.
-				x.setTransactioncount(ctc.getAbsoluteSupport()+1);
-				// Finally, we loop over each item in the transaction again
-				for(Integer item : transaction.getItems()){
+				LItemset closed = store(x, ctc.getAbsoluteSupport()+1);
+				tableClosed.add(closed);
+				// register the new closed itemset in the support index
+				updateSupport(tableClosed.size()-1, 0);
+				updated.add(closed);
+				// Finally, we loop over each item of the new closed itemset; note, that
+				// only the items of "x" (and not all items of the transaction) are used, 
+				// as otherwise the cid lists would refer to itemsets not containing the item
+				for(Integer item : x.getItems()){
 					// we get the cidlist of the current item
 					List<Integer> cidlist = cidListMap.get(item);
 					// if null
@@ -151,19 +176,217 @@ public class CloStreamAlgorithm {
 			}
 		
 		}
+		
+		// Finally, the listeners are informed about the changed closed itemsets
+		for(CloStreamListener listener : listeners){
+			listener.closedItemsetsUpdated(transaction, updated);
+		}
+	}
+
+	/**
+	 * Register a listener that is notified about the closed itemsets 
+	 * created or updated by each new transaction.
+	 * @param listener the listener
+	 */
+	public void addListener(CloStreamListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Remove a previously registered listener.
+	 * @param listener the listener
+	 */
+	public void removeListener(CloStreamListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Get the support of an arbitrary (non empty) itemset, i.e. the support of 
+	 * its closure, which is the highest support of the closed itemsets containing it. 
+	 * Only the cid list of the least frequent item of the itemset is scanned.
+	 * @param itemset the itemset; its items are assumed to be lexically ordered
+	 * @return the support of the itemset
+	 */
+	public int getSupport(AbstractOrderedItemset itemset) {
+		// find the shortest cid list among the items of the itemset
+		List<Integer> shortest = null;
+		for(int i=0; i< itemset.size(); i++){
+			List<Integer> cidlist = cidListMap.get(itemset.get(i));
+			// an unknown item has never been seen in the stream
+			if(cidlist == null){
+				return 0;
+			}
+			if(shortest == null || cidlist.size() < shortest.size()){
+				shortest = cidlist;
+			}
+		}
+		if(shortest == null){
+			return 0;
+		}
+		// the support is the highest support of a closed itemset containing the itemset
+		int support = 0;
+		for(Integer cid : shortest){
+			LItemset closed = tableClosed.get(cid);
+			if(closed.getAbsoluteSupport() > support && closed.containsAll(itemset)){
+				support = closed.getAbsoluteSupport();
+			}
+		}
+		return support;
+	}
+
+	/**
+	 * Store a new closed itemset: the items of a closed itemset never change, 
+	 * so they are copied once into an array-based itemset of the level index, 
+	 * which also holds the support; the table keeps a read-only view of it.
+	 * @param x the new closed itemset
+	 * @param support the support of the new closed itemset
+	 * @return the closed itemset to keep in the table
+	 */
+	private LItemset store(LItemset x, int support) {
+		// the empty set is never indexed
+		if(x.size() == 0){
+			x.setTransactioncount(support);
+			return x;
+		}
+		int[] items = new int[x.size()];
+		for(int i=0; i< items.length; i++){
+			items[i] = x.get(i);
+		}
+		AItemset itemset = new AItemset(items, support);
+		closedByLevel.addItemset(itemset, items.length);
+		
+		return new SharedLItemset(itemset);
+	}
+
+	/**
+	 * Move a closed itemset from one support level of the support index to another.
+	 * @param cid the id of the closed itemset
+	 * @param oldSupport the previous support of the itemset (0 for a new itemset)
+	 */
+	private void updateSupport(int cid, int oldSupport) {
+		// the empty set is never indexed
+		LItemset closed = tableClosed.get(cid);
+		if(closed.size() == 0){
+			return;
+		}
+		int newSupport = closed.getAbsoluteSupport();
+		
+		// remove the cid from its previous support level
+		Set<Integer> cids = supportIndex.get(oldSupport);
+		if(cids != null){
+			cids.remove(cid);
+			if(cids.isEmpty()){
+				supportIndex.remove(oldSupport);
+			}
+		}
+		// and add it to the new one
+		cids = supportIndex.get(newSupport);
+		if(cids == null){
+			cids = new HashSet<Integer>();
+			supportIndex.put(newSupport, cids);
+		}
+		cids.add(cid);
 	}
 
 	/**
 	 * Get the current list of closed itemsets without the empty set.
+	 * 
+	 * The empty set is kept at position 0 of the internal table, as the 
+	 * cids used by the cid lists and the support index refer to positions 
+	 * in this table; a copy of the table after the empty set is returned, so
+	 * that the list remains valid when further transactions are processed.
+	 * 
 	 * @return a List of closed itemsets
 	 */
 	public List<LItemset> getClosedItemsets() {
-		// if the empty set is here
-		if(tableClosed.get(0).size() ==0){
-			// remove it
-			tableClosed.remove(0); 
+		// return the closed itemsets after the empty set
+		return Collections.unmodifiableList(new ArrayList<LItemset>(tableClosed.subList(1, tableClosed.size())));
+	}
+
+	/**
+	 * Get the current closed itemsets (without the empty set) organized by level, 
+	 * as expected by AlgoClosedRules. The itemsets carry their support but no
+	 * transaction ids. 
+	 * 
+	 * This is not a copy: the itemsets are shared with this algorithm and 
+	 * change with each new transaction, so rules must not be generated 
+	 * while transactions are processed.
+	 * 
+	 * @return the closed itemsets
+	 */
+	public AItemsets getClosedItemsetsByLevel() {
+		return closedByLevel;
+	}
+
+	/**
+	 * Get the closed itemsets having a support of at least "minsupp", ordered
+	 * by decreasing support. The cost of this method is proportional to the 
+	 * number of closed itemsets returned.
+	 * @param minsupp the minimum support
+	 * @return a List of closed itemsets
+	 */
+	public List<LItemset> getClosedItemsets(int minsupp) {
+		List<LItemset> result = new ArrayList<LItemset>();
+		// for each support level from the highest down to minsupp
+		for(Set<Integer> cids : supportIndex.tailMap(minsupp, true).descendingMap().values()){
+			for(Integer cid : cids){
+				result.add(tableClosed.get(cid));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the "n" closed itemsets having the highest support, ordered by
+	 * decreasing support. Itemsets having the same support as the n-th
+	 * itemset are returned in no particular order.
+	 * @param n the number of closed itemsets
+	 * @return a List of at most n closed itemsets
+	 */
+	public List<LItemset> getTopClosedItemsets(int n) {
+		List<LItemset> result = new ArrayList<LItemset>();
+		// for each support level from the highest down
+top:	for(Set<Integer> cids : supportIndex.descendingMap().values()){
+			for(Integer cid : cids){
+				if(result.size() >= n){
+					break top;
+				}
+				result.add(tableClosed.get(cid));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the closed itemsets containing a given item, using the cid list of 
+	 * this item.
+	 * @param item the item
+	 * @return a List of closed itemsets
+	 */
+	public List<LItemset> getClosedItemsetsContaining(Integer item) {
+		return getClosedItemsetsContaining(item, 1);
+	}
+
+	/**
+	 * Get the closed itemsets containing a given item and having a support of 
+	 * at least "minsupp", using the cid list of this item.
+	 * @param item the item
+	 * @param minsupp the minimum support
+	 * @return a List of closed itemsets
+	 */
+	public List<LItemset> getClosedItemsetsContaining(Integer item, int minsupp) {
+		// get the cid list of the item
+		List<Integer> cidlist = cidListMap.get(item);
+		if(cidlist == null){
+			return Collections.emptyList();
+		}
+		List<LItemset> result = new ArrayList<LItemset>();
+		for(Integer cid : cidlist){
+			LItemset itemset = tableClosed.get(cid);
+			if(itemset.getAbsoluteSupport() >= minsupp){
+				result.add(itemset);
+			}
 		}
-		// return the remaining closed itemsets
-		return tableClosed;
+		return result;
 	}
 }
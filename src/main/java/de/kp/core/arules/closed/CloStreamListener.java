@@ -0,0 +1,39 @@
+package de.kp.core.arules.closed;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.List;
+
+/**
+ * A listener that is informed by the CloStream algorithm about the closed
+ * itemsets that have been created or updated by a new transaction.
+ * 
+ * @see CloStreamAlgorithm
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public interface CloStreamListener {
+
+	/**
+	 * This method is called after a transaction has been processed.
+	 * @param transaction the transaction
+	 * @param updated the closed itemsets created or updated by the transaction
+	 */
+	public void closedItemsetsUpdated(LItemset transaction, List<LItemset> updated);
+	
+}
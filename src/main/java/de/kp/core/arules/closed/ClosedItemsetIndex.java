@@ -0,0 +1,134 @@
+package de.kp.core.arules.closed;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An inverted index over a set of closed itemsets that is used to determine
+ * the support of arbitrary itemsets.
+ * <br/><br/>
+ * 
+ * The closed itemsets are numbered by increasing size, and each item is mapped
+ * onto a bitset of the numbers of the closed itemsets containing it. The closed
+ * supersets of an itemset are then given by the intersection of the bitsets of 
+ * its items, and the first of them is the smallest closed superset, i.e. the 
+ * closure of the itemset, that carries its support. Supports are memoised, as 
+ * the rule generation asks for the same antecedents many times.
+ * <br/><br/>
+ * 
+ * The index is not modified after construction except for the memoised
+ * supports, so it may be queried by several threads.
+ * 
+ * @see AlgoClosedRules
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class ClosedItemsetIndex {
+
+	// the closed itemsets ordered by increasing size
+	private final List<AItemset> itemsets = new ArrayList<AItemset>();
+	
+	// Key: item  Value: the positions of the closed itemsets containing the item
+	private final Map<Integer, BitSet> itemIndex = new HashMap<Integer, BitSet>();
+	
+	// the supports that have already been computed
+	private final Map<ItemsetKey, Integer> supportCache = new ConcurrentHashMap<ItemsetKey, Integer>();
+	
+	/**
+	 * Constructor
+	 * @param closedItemsets the closed itemsets, organized by level
+	 */
+	public ClosedItemsetIndex(AItemsets closedItemsets) {
+		// levels are ordered by size, so positions grow with the itemset size
+		for(List<AItemset> level : closedItemsets.getLevels()){
+			for(AItemset itemset : level){
+				int position = itemsets.size();
+				itemsets.add(itemset);
+				
+				for(int item : itemset.getItems()){
+					BitSet positions = itemIndex.get(item);
+					if(positions == null){
+						positions = new BitSet();
+						itemIndex.put(item, positions);
+					}
+					positions.set(position);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Get the support of an itemset, i.e. the support of its closure.
+	 * @param itemset the itemset
+	 * @return the support, or 0 if the itemset is not contained in any closed itemset
+	 */
+	public int getSupport(AItemset itemset) {
+		ItemsetKey key = new ItemsetKey(itemset.getItems());
+		
+		Integer support = supportCache.get(key);
+		if(support == null){
+			support = computeSupport(itemset.getItems());
+			supportCache.put(key, support);
+		}
+		return support;
+	}
+	
+	/**
+	 * Intersect the bitsets of the items, starting with the least frequent item.
+	 * @param items the items of the itemset
+	 * @return the support of the closure of the items
+	 */
+	private int computeSupport(int[] items) {
+		if(items.length == 0){
+			return 0;
+		}
+		
+		// determine the most selective item
+		BitSet smallest = null;
+		for(int item : items){
+			BitSet positions = itemIndex.get(item);
+			if(positions == null){
+				return 0;
+			}
+			if(smallest == null || positions.cardinality() < smallest.cardinality()){
+				smallest = positions;
+			}
+		}
+		
+		BitSet supersets = (BitSet)smallest.clone();
+		for(int item : items){
+			BitSet positions = itemIndex.get(item);
+			if(positions != smallest){
+				supersets.and(positions);
+				if(supersets.isEmpty()){
+					return 0;
+				}
+			}
+		}
+		
+		// the first closed superset is the smallest one and thus the closure
+		return itemsets.get(supersets.nextSetBit(0)).getAbsoluteSupport();
+	}
+	
+}
@@ -0,0 +1,150 @@
+package de.kp.core.arules.closed;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class maintains the closed association rules of a CloStream algorithm 
+ * incrementally: instead of regenerating all rules after a batch of transactions, 
+ * only the rules affected by a new transaction are recomputed.
+ * <br/><br/>
+ * 
+ * A transaction only changes the support of itemsets that are contained in the
+ * transaction. A rule generated from a closed itemset is therefore affected if
+ * either its support (the closed itemset is contained in the transaction) or the 
+ * support of its antecedent (the antecedent is contained in the transaction) has
+ * changed. In both cases the closed itemset shares at least one item with the 
+ * transaction, and these closed itemsets are found through the cid lists of
+ * the CloStream algorithm.
+ * 
+ * @see CloStreamAlgorithm
+ * @see AlgoClosedRules
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class IncrementalClosedRules extends AlgoClosedRules implements CloStreamListener {
+
+	// the stream algorithm that provides the closed itemsets
+	private final CloStreamAlgorithm algorithm;
+	
+	// the rules generated from each closed itemset; closed itemsets
+	// are updated in place by the CloStream algorithm, so they are
+	// identified by reference
+	private final Map<LItemset, List<ClosedRule>> rulesByItemset = new IdentityHashMap<LItemset, List<ClosedRule>>();
+	
+	// the number of rules currently maintained
+	private int ruleCount = 0;
+	
+	/**
+	 * Constructor; the rules of the closed itemsets already found by the
+	 * algorithm are generated, and this object registers itself as a listener
+	 * to keep the rules up to date.
+	 * @param algorithm the CloStream algorithm
+	 * @param minconf the minimum confidence threshold
+	 */
+	public IncrementalClosedRules(CloStreamAlgorithm algorithm, double minconf) {
+		this.algorithm = algorithm;
+		this.minconf = minconf;
+		
+		for(LItemset closed : algorithm.getClosedItemsets()){
+			updateRules(closed);
+		}
+		algorithm.addListener(this);
+	}
+
+	/**
+	 * Recompute the rules of all closed itemsets sharing an item with the
+	 * transaction; these include the closed itemsets created or updated by it.
+	 */
+	public void closedItemsetsUpdated(LItemset transaction, List<LItemset> updated) {
+		// collect the affected closed itemsets without duplicates
+		Map<LItemset, Boolean> affected = new IdentityHashMap<LItemset, Boolean>();
+		for(LItemset closed : updated){
+			affected.put(closed, Boolean.TRUE);
+		}
+		for(Integer item : transaction.getItems()){
+			for(LItemset closed : algorithm.getClosedItemsetsContaining(item)){
+				affected.put(closed, Boolean.TRUE);
+			}
+		}
+		
+		for(LItemset closed : affected.keySet()){
+			updateRules(closed);
+		}
+	}
+
+	/**
+	 * Replace the rules generated from a certain closed itemset.
+	 * @param closed the closed itemset
+	 */
+	private void updateRules(LItemset closed) {
+		// a closed itemset of size < 2 does not generate rules
+		if(closed.size() < 2){
+			return;
+		}
+		
+		int[] items = new int[closed.size()];
+		for(int i=0; i< items.length; i++){
+			items[i] = closed.get(i);
+		}
+
+		List<ClosedRule> rules = new ArrayList<ClosedRule>();
+		generateRules(new AItemset(items), rules);
+		
+		List<ClosedRule> previous = rulesByItemset.put(closed, rules);
+		if(previous != null){
+			ruleCount -= previous.size();
+		}
+		ruleCount += rules.size();
+	}
+
+	/**
+	 * The support of an itemset is provided by the CloStream algorithm.
+	 */
+	@Override
+	protected int calculateSupport(AItemset itemsetToTest) {
+		return algorithm.getSupport(itemsetToTest);
+	}
+
+	/**
+	 * Get the current closed association rules.
+	 * @return the rules
+	 */
+	public ClosedRules getRules() {
+		ClosedRules rules = new ClosedRules("Closed association rules");
+		for(List<ClosedRule> list : rulesByItemset.values()){
+			for(ClosedRule rule : list){
+				rules.addRule(rule);
+			}
+		}
+		return rules;
+	}
+	
+	/**
+	 * Get the number of closed association rules currently maintained.
+	 * @return the number of rules
+	 */
+	public int getRuleCount() {
+		return ruleCount;
+	}
+	
+}
@@ -0,0 +1,61 @@
+package de.kp.core.arules.closed;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.Arrays;
+
+/**
+ * A hash key for an ordered array of items; AItemset itself compares
+ * by reference, so this class is used wherever itemsets have to be 
+ * found by their content.
+ * 
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+final class ItemsetKey {
+
+	private final int[] items;
+	private final int hash;
+	
+	/**
+	 * Constructor
+	 * @param items the items; the array must not be modified afterwards
+	 */
+	ItemsetKey(int[] items) {
+		this.items = items;
+		this.hash = Arrays.hashCode(items);
+	}
+	
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if(o == this){
+			return true;
+		}
+		if(!(o instanceof ItemsetKey)){
+			return false;
+		}
+		ItemsetKey key = (ItemsetKey)o;
+		return hash == key.hash && Arrays.equals(items, key.items);
+	}
+	
+}
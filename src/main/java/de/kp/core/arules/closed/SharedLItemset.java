@@ -0,0 +1,90 @@
+package de.kp.core.arules.closed;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.util.AbstractList;
+
+/**
+ * A read-only LItemset that is backed by an array-based itemset; CloStream
+ * keeps its closed itemsets this way, so that the items and the support of
+ * a closed itemset are stored once and shared with the level index used by
+ * AlgoClosedRules.
+ * 
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+final class SharedLItemset extends LItemset {
+
+	private final AItemset itemset;
+	
+	SharedLItemset(AItemset itemset) {
+		this.itemset = itemset;
+		// the inherited list is replaced by a read-only view of the items
+		this.items = new AbstractList<Integer>() {
+			@Override
+			public Integer get(int index) {
+				return SharedLItemset.this.itemset.itemset[index];
+			}
+			@Override
+			public int size() {
+				return SharedLItemset.this.itemset.itemset.length;
+			}
+		};
+	}
+
+	@Override
+	public int getAbsoluteSupport() {
+		return itemset.getAbsoluteSupport();
+	}
+
+	@Override
+	public void increaseTransactionCount() {
+		itemset.setAbsoluteSupport(itemset.getAbsoluteSupport() + 1);
+	}
+
+	@Override
+	public void setTransactioncount(int transactioncount) {
+		itemset.setAbsoluteSupport(transactioncount);
+	}
+
+	@Override
+	public Integer get(int index) {
+		return itemset.itemset[index];
+	}
+
+	@Override
+	public int size() {
+		return itemset.itemset.length;
+	}
+
+	@Override
+	public boolean contains(Integer item) {
+		// the items are lexically ordered
+		int value = item;
+		for(int i : itemset.itemset){
+			if(i == value){
+				return true;
+			}
+			if(i > value){
+				return false;
+			}
+		}
+		return false;
+	}
+	
+}
@@ -0,0 +1,324 @@
+package de.kp.core.arules.hadoop;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.JobClient;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.MapReduceBase;
+import org.apache.hadoop.mapred.Mapper;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.Reducer;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.SequenceFileOutputFormat;
+import org.apache.hadoop.mapred.lib.NLineInputFormat;
+
+import de.kp.core.arules.Rule;
+import de.kp.core.arules.TopKAlgorithm;
+import de.kp.core.arules.TopKSummary;
+import de.kp.core.arules.Vertical;
+import de.kp.core.arules.hadoop.io.VerticalReader;
+
+/**
+ * Distributed top-k rule mining: the search space is partitioned by the first
+ * antecedent item of the rules (see TopKAlgorithm.setPartition), and each map 
+ * task mines the local top-k rules of one partition from a VerticalWritable. 
+ * A single reducer merges the local results into a TopKSummary.
+ * <br/><br/>
+ * 
+ * The partitions are mined in rounds of as many partitions as tasks; after each 
+ * round, the minimum support of the merged summary is passed to the tasks of the
+ * next round, which start their search with this support, so that later tasks
+ * prune as hard as a single miner would.
+ * <br/><br/>
+ * 
+ * The driver uses the mapred API only and runs in Hadoop local mode as well
+ * (mapred.job.tracker=local and a local file system); main() runs it this way
+ * and compares the result with a single TopKAlgorithm run on the same data.
+ * 
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class DistributedTopK {
+
+	public static final String VERTICAL   = "arules.topk.vertical";
+	public static final String K          = "arules.topk.k";
+	public static final String CONFIDENCE = "arules.topk.confidence";
+	public static final String PARTITIONS = "arules.topk.partitions";
+	public static final String MINSUPP    = "arules.topk.minsupp";
+	
+	public DistributedTopK() {
+	}
+
+	/**
+	 * Run the distributed mining
+	 * 
+	 * @param vertical the path of the SequenceFile with the VerticalWritable
+	 * @param working a working directory for the partitions and partial results
+	 * @param k the value of k
+	 * @param minConfidence the minimum confidence threshold
+	 * @param partitions the number of partitions of the search space
+	 * @param tasks the number of partitions mined per round
+	 * @param jobConf the configuration
+	 * @return the top-k rules
+	 * @throws IOException if a job fails
+	 */
+	public TopKSummary run(String vertical, String working, int k, double minConfidence, int partitions, int tasks, JobConf jobConf) throws IOException {
+		
+		TopKSummary summary = new TopKSummary(k);
+		
+		int rounds = (partitions + tasks - 1) / tasks;
+		for (int round = 0; round < rounds; round++) {
+			
+			Path base = new Path(working, "round-" + round);
+			
+			Path input  = new Path(base, "partitions");
+			Path output = new Path(base, "summary");
+			
+			FileSystem fs = base.getFileSystem(jobConf);
+			fs.delete(base, true);
+			
+			/*
+			 * Each line of the input holds the partition 
+			 * to be mined by one map task
+			 */
+			FSDataOutputStream out = fs.create(input);
+			
+			int last = Math.min(partitions, (round + 1) * tasks);
+			for (int partition = round * tasks; partition < last; partition++) {
+				out.writeBytes(partition + "\n");
+			}
+			out.close();
+			
+			JobConf job = new JobConf(jobConf, DistributedTopK.class);
+			job.setJobName("TopK rules, round " + (round + 1) + " of " + rounds);
+			
+			job.set(VERTICAL, vertical);
+			
+			job.setInt(K, k);
+			job.set(CONFIDENCE, String.valueOf(minConfidence));
+			
+			job.setInt(PARTITIONS, partitions);
+			job.setInt(MINSUPP, summary.getMinimumSupport());
+			
+			job.setInputFormat(NLineInputFormat.class);
+			job.setInt("mapred.line.input.format.linespermap", 1);
+			
+			FileInputFormat.setInputPaths(job, input);
+			
+			job.setMapperClass(TopKMapper.class);
+			job.setCombinerClass(TopKReducer.class);
+			job.setReducerClass(TopKReducer.class);
+			
+			job.setNumReduceTasks(1);
+			
+			job.setOutputKeyClass(IntWritable.class);
+			job.setOutputValueClass(TopKSummaryWritable.class);
+			
+			job.setOutputFormat(SequenceFileOutputFormat.class);
+			FileOutputFormat.setOutputPath(job, output);
+			
+			JobClient.runJob(job);
+			
+			/*
+			 * Merge the result of this round and thereby
+			 * raise the minimum support for the next round
+			 */
+			summary.merge(read(output, job));
+			
+		}
+		
+		return summary;
+		
+	}
+	
+	/**
+	 * Run the distributed mining in Hadoop local mode and compare the result 
+	 * with a single TopKAlgorithm run on the same vertical database.
+	 * <br/><br/>
+	 * 
+	 * Arguments: vertical working k confidence partitions tasks
+	 * 
+	 * @param args the arguments
+	 * @throws IOException if a job fails
+	 */
+	public static void main(String[] args) throws IOException {
+		
+		if (args.length != 6) {
+			System.err.println("Usage: DistributedTopK <vertical> <working> <k> <confidence> <partitions> <tasks>");
+			System.exit(2);
+		}
+		
+		String vertical = args[0];
+		String working  = args[1];
+		
+		int k = Integer.parseInt(args[2]);
+		double minConfidence = Double.parseDouble(args[3]);
+		
+		int partitions = Integer.parseInt(args[4]);
+		int tasks = Integer.parseInt(args[5]);
+		
+		JobConf jobConf = new JobConf(DistributedTopK.class);
+		
+		jobConf.set("mapred.job.tracker", "local");
+		jobConf.set("fs.default.name", "file:///");
+		
+		TopKSummary distributedSummary = new DistributedTopK().run(vertical, working, k, minConfidence, partitions, tasks, jobConf);
+		
+		TopKAlgorithm algorithm = new TopKAlgorithm();
+		algorithm.runAlgorithm(k, minConfidence, new VerticalReader().read(vertical, jobConf));
+		
+		TopKSummary singleSummary = algorithm.getSummary();
+		
+		/*
+		 * Both results may hold a different subset of the rules that tie 
+		 * with the k-th rule, so only the support of the k-th rule and the
+		 * rules above this support are compared
+		 */
+		int support = singleSummary.getMinimumSupport();
+		
+		List<Rule> distributed = above(distributedSummary.getRules(), support);
+		List<Rule> single = above(singleSummary.getRules(), support);
+		
+		/*
+		 * Rules are equal by their items, so the supports 
+		 * are compared separately
+		 */
+		boolean equal = distributedSummary.getMinimumSupport() == support && distributed.equals(single);
+		for (int i = 0; equal && i < single.size(); i++) {
+			equal = distributed.get(i).getAbsoluteSupport() == single.get(i).getAbsoluteSupport()
+					&& distributed.get(i).getAntecedentSupport() == single.get(i).getAntecedentSupport();
+		}
+		
+		System.out.println("Support of the k-th rule : " + distributedSummary.getMinimumSupport() + " (distributed), " + support + " (single)");
+		System.out.println("Rules above this support : " + distributed.size() + " (distributed), " + single.size() + " (single)");
+		
+		if (!equal) {
+			System.out.println("The distributed result differs from the single run.");
+			System.exit(1);
+		}
+		
+		System.out.println("The distributed result equals the single run.");
+		
+	}
+	
+	/**
+	 * Get the rules of a descending list of rules with a support above a threshold.
+	 */
+	private static List<Rule> above(List<Rule> rules, int support) {
+		
+		int count = 0;
+		while (count < rules.size() && rules.get(count).getAbsoluteSupport() > support) {
+			count++;
+		}
+		
+		return rules.subList(0, count);
+		
+	}
+	
+	private TopKSummary read(Path output, JobConf jobConf) throws IOException {
+		
+		FileSystem fs = output.getFileSystem(jobConf);
+		SequenceFile.Reader reader = new SequenceFile.Reader(fs, new Path(output, "part-00000"), jobConf);
+		
+		IntWritable key = new IntWritable();
+		TopKSummaryWritable value = new TopKSummaryWritable();
+		
+		TopKSummary summary = null;
+		while (reader.next(key, value)) {
+			summary = value.get();
+		}
+		
+		reader.close();
+		if (summary == null) {
+			throw new IOException("No summary found in " + output);
+		}
+		
+		return summary;
+		
+	}
+	
+	public static class TopKMapper extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, TopKSummaryWritable> {
+
+		private static final IntWritable KEY = new IntWritable(0);
+		
+		private JobConf jobConf;
+		
+		@Override
+		public void configure(JobConf jobConf) {
+			this.jobConf = jobConf;
+		}
+
+		@Override
+		public void map(LongWritable offset, Text line, OutputCollector<IntWritable, TopKSummaryWritable> collector, Reporter reporter) throws IOException {
+
+			int partition = Integer.parseInt(line.toString().trim());
+			
+			int k = jobConf.getInt(K, 0);
+			double minConfidence = Double.parseDouble(jobConf.get(CONFIDENCE));
+			
+			/*
+			 * The vertical database is read for every partition,
+			 * as the algorithm prunes the transactions
+			 */
+			Vertical vertical = new VerticalReader().read(jobConf.get(VERTICAL), jobConf);
+			
+			TopKAlgorithm algorithm = new TopKAlgorithm();
+			
+			algorithm.setPartition(partition, jobConf.getInt(PARTITIONS, 1));
+			algorithm.setMinimumSupport(jobConf.getInt(MINSUPP, 1));
+			
+			algorithm.runAlgorithm(k, minConfidence, vertical);
+			collector.collect(KEY, new TopKSummaryWritable(algorithm.getSummary()));
+			
+		}
+		
+	}
+	
+	public static class TopKReducer extends MapReduceBase implements Reducer<IntWritable, TopKSummaryWritable, IntWritable, TopKSummaryWritable> {
+
+		@Override
+		public void reduce(IntWritable key, Iterator<TopKSummaryWritable> values, OutputCollector<IntWritable, TopKSummaryWritable> collector, Reporter reporter) throws IOException {
+
+			TopKSummary summary = null;
+			while (values.hasNext()) {
+
+				TopKSummary next = values.next().get();
+				summary = (summary == null) ? next : summary.merge(next);
+				
+			}
+			
+			collector.collect(key, new TopKSummaryWritable(summary));
+			
+		}
+		
+	}
+
+}
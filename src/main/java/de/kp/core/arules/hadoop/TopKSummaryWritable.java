@@ -0,0 +1,119 @@
+package de.kp.core.arules.hadoop;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+
+import de.kp.core.arules.Rule;
+import de.kp.core.arules.TopKSummary;
+
+/**
+ * A Writable for a TopKSummary, used to pass the local top-k rules of the 
+ * map tasks of DistributedTopK to the reducer. The rules are written as their
+ * items, support and antecedent support.
+ * 
+ * @see DistributedTopK
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class TopKSummaryWritable implements Writable {
+
+	private TopKSummary summary;
+
+	public TopKSummaryWritable() {
+	}
+
+	public TopKSummaryWritable(TopKSummary summary) {
+		this.summary = summary;
+	}
+
+	public TopKSummary get() {
+		return this.summary;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.apache.hadoop.io.Writable#readFields(java.io.DataInput)
+	 */
+	public void readFields(DataInput in) throws IOException {
+		
+		/*
+		 * A new summary is created for every record, as Hadoop
+		 * reuses the writable for the values of a reducer
+		 */
+		summary = new TopKSummary(in.readInt());
+		
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			
+			int[] antecedent = readItems(in);
+			int[] consequent = readItems(in);
+			
+			int support = in.readInt();
+			int antecedentSupport = in.readInt();
+			
+			summary.add(new Rule(antecedent, consequent, support, antecedentSupport));
+			
+		}
+		
+	}
+
+	/* (non-Javadoc)
+	 * @see org.apache.hadoop.io.Writable#write(java.io.DataOutput)
+	 */
+	public void write(DataOutput out) throws IOException {
+		
+		out.writeInt(summary.getK());
+		out.writeInt(summary.size());
+		
+		for (Rule rule : summary.getRules()) {
+			
+			writeItems(out, rule.getAntecedent());
+			writeItems(out, rule.getConsequent());
+			
+			out.writeInt(rule.getAbsoluteSupport());
+			out.writeInt(rule.getAntecedentSupport());
+			
+		}
+		
+	}
+	
+	private int[] readItems(DataInput in) throws IOException {
+		
+		int[] items = new int[in.readInt()];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = in.readInt();
+		}
+		
+		return items;
+	
+	}
+	
+	private void writeItems(DataOutput out, int[] items) throws IOException {
+		
+		out.writeInt(items.length);
+		for (int i = 0; i < items.length; i++) {
+			out.writeInt(items[i]);
+		}
+	
+	}
+
+}
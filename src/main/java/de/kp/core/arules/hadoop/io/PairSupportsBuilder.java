@@ -0,0 +1,137 @@
+package de.kp.core.arules.hadoop.io;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.apache.hadoop.mapred.JobConf;
+
+import cascading.flow.Flow;
+import cascading.flow.FlowProcess;
+import cascading.flow.hadoop.HadoopFlowConnector;
+import cascading.flow.hadoop.planner.HadoopPlanner;
+import cascading.operation.BaseOperation;
+import cascading.operation.Filter;
+import cascading.operation.FilterCall;
+import cascading.operation.Function;
+import cascading.operation.FunctionCall;
+import cascading.pipe.Each;
+import cascading.pipe.Pipe;
+import cascading.pipe.assembly.CountBy;
+import cascading.property.AppProps;
+import cascading.scheme.hadoop.SequenceFile;
+import cascading.scheme.hadoop.TextLine;
+import cascading.tap.SinkMode;
+import cascading.tap.Tap;
+import cascading.tap.hadoop.Hfs;
+import cascading.tuple.Fields;
+import cascading.tuple.Tuple;
+
+/**
+ * A Cascading flow to count the supports of all item pairs of line-oriented 
+ * transaction data (see VerticalBuilder for the format) in parallel. Pairs are
+ * counted partially in the mappers and summed up in the reducers; pairs with a
+ * support below a given floor are dropped. The result is written to a SequenceFile 
+ * with the fields "item1", "item2" and "support" and read by the PairSupportsReader
+ * to seed the top-k algorithms.
+ * 
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class PairSupportsBuilder {
+
+	public PairSupportsBuilder() {
+	}
+
+	@SuppressWarnings("rawtypes")
+	public void build(String input, String output, int floor, JobConf jobConf) throws IOException {
+
+		Tap source = new Hfs(new TextLine(new Fields("offset", "line")), input);
+		Tap sink = new Hfs(new SequenceFile(new Fields("item1", "item2", "support")), output, SinkMode.REPLACE);
+		
+		Pipe pairs = new Pipe("pairs");
+		pairs = new Each(pairs, new Fields("line"), new SplitPairs(), Fields.RESULTS);
+		
+		pairs = new CountBy(pairs, new Fields("item1", "item2"), new Fields("support"));
+		pairs = new Each(pairs, new Fields("support"), new BelowFloor(floor));
+		
+		Properties properties = new Properties();
+		HadoopPlanner.copyJobConf(properties, jobConf);
+		
+		AppProps.setApplicationJarClass(properties, PairSupportsBuilder.class);
+		
+		Flow flow = new HadoopFlowConnector(properties).connect("pairs", source, sink, pairs);
+		flow.complete();
+		
+	}
+
+	/**
+	 * Emit all pairs of distinct items of a transaction, 
+	 * with the smaller item first.
+	 */
+	@SuppressWarnings({ "serial", "rawtypes" })
+	private static class SplitPairs extends BaseOperation implements Function {
+
+		public SplitPairs() {
+			super(1, new Fields("item1", "item2"));
+		}
+
+		@Override
+		public void operate(FlowProcess flowProcess, FunctionCall functionCall) {
+			
+			String line = functionCall.getArguments().getString("line").trim();
+			if (line.isEmpty()) return;
+			
+			TreeSet<Integer> items = new TreeSet<Integer>();
+			for (String token : line.split("[\\s,]+")) {
+				items.add(Integer.parseInt(token));
+			}
+			
+			Integer[] sorted = items.toArray(new Integer[items.size()]);
+			for (int i = 0; i < sorted.length; i++) {
+				for (int j = i + 1; j < sorted.length; j++) {
+					functionCall.getOutputCollector().add(new Tuple(sorted[i], sorted[j]));
+				}
+			}
+			
+		}
+		
+	}
+
+	/**
+	 * Remove pairs with a support below the floor.
+	 */
+	@SuppressWarnings({ "serial", "rawtypes" })
+	private static class BelowFloor extends BaseOperation implements Filter {
+
+		private int floor;
+		
+		public BelowFloor(int floor) {
+			this.floor = floor;
+		}
+		
+		@Override
+		public boolean isRemove(FlowProcess flowProcess, FilterCall filterCall) {
+			return filterCall.getArguments().getLong("support") < floor;
+		}
+		
+	}
+	
+}
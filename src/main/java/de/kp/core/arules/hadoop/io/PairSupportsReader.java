@@ -0,0 +1,87 @@
+package de.kp.core.arules.hadoop.io;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.mapred.JobConf;
+
+import cascading.flow.hadoop.HadoopFlowProcess;
+import cascading.scheme.hadoop.SequenceFile;
+import cascading.tap.Tap;
+import cascading.tap.hadoop.Hfs;
+import cascading.tuple.Fields;
+import cascading.tuple.TupleEntry;
+import cascading.tuple.TupleEntryIterator;
+
+import de.kp.core.arules.PairSupports;
+
+public class PairSupportsReader {
+
+	public PairSupportsReader() {
+	}
+
+	/**
+	 * Read the pair supports built by the PairSupportsBuilder
+	 * 
+	 * @param input the output of the PairSupportsBuilder
+	 * @param floor the floor used to build the pair supports
+	 * @param jobConf the configuration
+	 * @return the pair supports
+	 * @throws IOException if the pair supports cannot be read
+	 */
+	@SuppressWarnings("rawtypes")
+	public PairSupports read(String input, int floor, JobConf jobConf) throws IOException {
+		
+		Tap tap = new Hfs(new SequenceFile(new Fields("item1", "item2", "support")),input);		
+	    TupleEntryIterator iter = new HadoopFlowProcess(jobConf).openTapForRead(tap);
+	    
+	    List<int[]> pairs = new ArrayList<int[]>();
+	    while (iter.hasNext()) {
+	    	
+	    	TupleEntry entry = iter.next();
+	    	pairs.add(new int[] {entry.getInteger("item1"), entry.getInteger("item2"), entry.getInteger("support")});
+	    	
+	    }
+
+	    iter.close();
+	    
+	    int size = pairs.size();
+	    
+	    int[] items1   = new int[size];
+	    int[] items2   = new int[size];
+	    int[] supports = new int[size];
+	    
+	    for (int i = 0; i < size; i++) {
+	    	
+	    	int[] pair = pairs.get(i);
+	    	
+	    	items1[i]   = pair[0];
+	    	items2[i]   = pair[1];
+	    	supports[i] = pair[2];
+	    	
+	    }
+	    
+	    return new PairSupports(items1, items2, supports, floor);
+		
+	}
+
+}
@@ -35,13 +35,13 @@ import cascading.tuple.Tuple;
 import cascading.tuple.TupleEntry;
 import cascading.tuple.TupleEntryCollector;
 
-import de.kp.core.arules.RedBlackTree;
-import de.kp.core.arules.RuleG;
+import de.kp.core.arules.ArrayRedBlackTree;
+import de.kp.core.arules.Rule;
 
 public class RuleWriter {
 
 	@SuppressWarnings("rawtypes")
-	public void write(PriorityQueue<RuleG> rules, String output, JobConf jobConf) throws IOException {
+	public void write(PriorityQueue<Rule> rules, String output, JobConf jobConf) throws IOException {
 
 		Tap tap = new Hfs(new TextLine(new Fields("rule")),output, SinkMode.REPLACE);		
 	    TupleEntryCollector collector = new HadoopFlowProcess(jobConf).openTapForWrite(tap);
@@ -57,7 +57,7 @@ public class RuleWriter {
 		
 		// for each rule
 		for(Object ruleObj : ary){
-			RuleG rule = (RuleG) ruleObj;
+			Rule rule = (Rule) ruleObj;
 			
 			// Write the rule
 			StringBuffer buffer = new StringBuffer();
@@ -88,15 +88,15 @@ public class RuleWriter {
 	}
 	
 	@SuppressWarnings({ "rawtypes"})
-	public void write(RedBlackTree<RuleG> rules, String output, JobConf jobConf) throws IOException {
+	public void write(ArrayRedBlackTree<Rule> rules, String output, JobConf jobConf) throws IOException {
 
 		Tap tap = new Hfs(new TextLine(new Fields("rule")),output, SinkMode.REPLACE);		
 	    TupleEntryCollector collector = new HadoopFlowProcess(jobConf).openTapForWrite(tap);
 
-		Iterator<RuleG> iter = rules.iterator();
+		Iterator<Rule> iter = rules.iterator();
 		while (iter.hasNext()) {
 			// Write the rule
-			RuleG rule = (RuleG) iter.next();
+			Rule rule = (Rule) iter.next();
 			StringBuffer buffer = new StringBuffer();
 			buffer.append(rule.toString());
 			// write separator
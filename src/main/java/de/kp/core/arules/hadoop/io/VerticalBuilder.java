@@ -0,0 +1,549 @@
+package de.kp.core.arules.hadoop.io;
+/* Copyright (c) 2014 Dr. Krusche & Partner PartG
+* 
+* This file is part of the Core-ARULES project
+* (https://github.com/skrusche63/core-arules).
+* 
+* Core-ARULES is free software: you can redistribute it and/or modify it under the
+* terms of the GNU General Public License as published by the Free Software
+* Foundation, either version 3 of the License, or (at your option) any later
+* version.
+* 
+* Core-ARULES is distributed in the hope that it will be useful, but WITHOUT ANY
+* WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+* A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* You should have received a copy of the GNU General Public License along with
+* Core-ARULES. 
+* 
+* If not, see <http://www.gnu.org/licenses/>.
+*/
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.JobConf;
+
+import cascading.flow.Flow;
+import cascading.flow.FlowProcess;
+import cascading.flow.hadoop.HadoopFlowConnector;
+import cascading.flow.hadoop.planner.HadoopPlanner;
+import cascading.operation.Aggregator;
+import cascading.operation.AggregatorCall;
+import cascading.operation.BaseOperation;
+import cascading.operation.Buffer;
+import cascading.operation.BufferCall;
+import cascading.operation.Function;
+import cascading.operation.FunctionCall;
+import cascading.pipe.Each;
+import cascading.pipe.Every;
+import cascading.pipe.GroupBy;
+import cascading.pipe.Pipe;
+import cascading.pipe.assembly.AggregateBy;
+import cascading.pipe.assembly.CountBy;
+import cascading.property.AppProps;
+import cascading.scheme.hadoop.SequenceFile;
+import cascading.scheme.hadoop.TextLine;
+import cascading.tap.SinkMode;
+import cascading.tap.Tap;
+import cascading.tap.hadoop.Hfs;
+import cascading.tuple.Fields;
+import cascading.tuple.Tuple;
+import cascading.tuple.TupleEntry;
+import cascading.tuple.TupleEntryIterator;
+
+import de.kp.core.arules.Transaction;
+import de.kp.core.arules.Vertical;
+import de.kp.core.arules.hadoop.BitSetWritable;
+import de.kp.core.arules.hadoop.TransactionWritable;
+import de.kp.core.arules.hadoop.VerticalWritable;
+
+/**
+ * A Cascading flow to build a vertical database from line-oriented transaction 
+ * data, where each line holds the (positive integer) items of a transaction, 
+ * separated by whitespace or commas. 
+ * <br/><br/>
+ * 
+ * The transactions are numbered in the order of their input files (by path) and
+ * lines, without a global sort: a first flow counts the transactions of each 
+ * segment, i.e. the consecutive lines of a file read by one map task, and the
+ * second flow numbers the transactions of a segment from the sum of the counts
+ * of all preceding segments. Each mapper builds partial tidsets of the items
+ * of its transactions, and these partial tidsets are OR-merged per item in the
+ * reducers, so that the transactions are not shuffled item by item.
+ * <br/><br/>
+ * 
+ * Finally the tidsets and transactions are assembled to a single VerticalWritable,
+ * that is written to a SequenceFile with the field "vertical" as expected by the
+ * VerticalReader. The vertical database is a single record, so this last step
+ * necessarily runs in a single reducer.
+ * 
+ * @author Dr. Stefan Krusche (Dr. Krusche & Partner)
+ */
+public class VerticalBuilder {
+
+	/*
+	 * The kind of records in the final assembly
+	 */
+	private static final int ITEM        = 0;
+	private static final int TRANSACTION = 1;
+	
+	public VerticalBuilder() {
+	}
+
+	public void build(String input, String output, JobConf jobConf) throws IOException {
+
+		Properties properties = new Properties();
+		HadoopPlanner.copyJobConf(properties, jobConf);
+		
+		AppProps.setApplicationJarClass(properties, VerticalBuilder.class);
+		
+		Map<String,Integer> offsets = countTransactions(input, output + "_segments", properties, jobConf);
+		buildVertical(input, output, offsets, properties);
+		
+	}
+
+	/**
+	 * Count the transactions of each segment of the input and compute the first
+	 * tid of each segment, in the order of the paths and offsets of the segments.
+	 */
+	@SuppressWarnings("rawtypes")
+	private Map<String,Integer> countTransactions(String input, String segments, Properties properties, JobConf jobConf) throws IOException {
+		
+		Tap source = new Hfs(new TextLine(new Fields("offset", "line")), input);
+		Tap sink = new Hfs(new SequenceFile(new Fields("path", "first", "count")), segments, SinkMode.REPLACE);
+		
+		Pipe counts = new Pipe("segments");
+		counts = new Each(counts, new Fields("offset", "line"), new ParseTransaction(), Fields.RESULTS);
+		
+		counts = new Each(counts, new Fields("offset"), new IdentifySegment(), Fields.RESULTS);
+		counts = new CountBy(counts, new Fields("path", "first"), new Fields("count"));
+		
+		Flow flow = new HadoopFlowConnector(properties).connect("segments", source, sink, counts);
+		flow.complete();
+		
+		/*
+		 * The number of segments is small, so that the offsets 
+		 * are computed here and passed to the numbering
+		 */
+		TreeMap<String, TreeMap<Long,Long>> ordered = new TreeMap<String, TreeMap<Long,Long>>();
+
+		TupleEntryIterator iter = flow.openSink();
+		while (iter.hasNext()) {
+			
+			TupleEntry entry = iter.next();
+			
+			String path = entry.getString("path");
+			if (ordered.containsKey(path) == false) {
+				ordered.put(path, new TreeMap<Long,Long>());
+			}
+			ordered.get(path).put(entry.getLong("first"), entry.getLong("count"));
+			
+		}
+		iter.close();
+		
+		Path path = new Path(segments);
+		path.getFileSystem(jobConf).delete(path, true);
+		
+		Map<String,Integer> offsets = new HashMap<String,Integer>();
+		
+		long offset = 0;
+		for (Map.Entry<String, TreeMap<Long,Long>> file : ordered.entrySet()) {
+			for (Map.Entry<Long,Long> segment : file.getValue().entrySet()) {
+				
+				offsets.put(Segment.key(file.getKey(), segment.getKey()), (int)offset);
+				offset += segment.getValue();
+				
+			}
+		}
+		
+		if (offset > Integer.MAX_VALUE) {
+			throw new IOException("Too many transactions: " + offset);
+		}
+		
+		return offsets;
+		
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private void buildVertical(String input, String output, Map<String,Integer> offsets, Properties properties) {
+
+		Tap source = new Hfs(new TextLine(new Fields("offset", "line")), input);
+		Tap sink = new Hfs(new SequenceFile(new Fields("vertical")), output, SinkMode.REPLACE);
+		
+		/*
+		 * Parse the lines and number the transactions 
+		 * from the first tid of their segment
+		 */
+		Pipe transactions = new Pipe("transactions");
+		transactions = new Each(transactions, new Fields("offset", "line"), new ParseTransaction(), Fields.RESULTS);
+		transactions = new Each(transactions, new Fields("offset", "items"), new NumberTransactions(offsets), Fields.RESULTS);
+
+		/*
+		 * Build the tidset of each item from the partial 
+		 * tidsets of the mappers
+		 */
+		Pipe items = new Pipe("items", transactions);
+		items = new Each(items, new Fields("tid", "items"), new SplitTransaction(), Fields.RESULTS);
+		
+		items = new MergeTidsBy(items);
+		
+		items = new Each(items, new Fields("item", "tids"), new ToRecord(ITEM), Fields.RESULTS);
+		
+		/*
+		 * Assemble tidsets and transactions to the single
+		 * record of the vertical database
+		 */
+		Pipe records = new Pipe("records", transactions);
+		records = new Each(records, new Fields("tid", "items"), new ToRecord(TRANSACTION), Fields.RESULTS);
+		
+		Pipe vertical = new GroupBy(Pipe.pipes(items, records), new Fields("group"), new Fields("kind", "key"));
+		vertical = new Every(vertical, new Fields("kind", "key", "value"), new AssembleVertical(), Fields.RESULTS);
+		
+		Flow flow = new HadoopFlowConnector(properties).connect("vertical", source, sink, vertical);
+		flow.complete();
+		
+	}
+
+	/**
+	 * The current segment of a map task, i.e. the consecutive lines of an input
+	 * file read by the task; a segment is identified by the path of the file and
+	 * the offset of its first transaction, which are the same in both flows.
+	 */
+	private static class Segment {
+		
+		String path;
+		long first;
+		
+		int count = 0;
+		
+		Segment(String path, long first) {
+			this.path = path;
+			this.first = first;
+		}
+		
+		/**
+		 * Get the segment of a transaction, given the current segment of the task.
+		 */
+		@SuppressWarnings("rawtypes")
+		static Segment next(FlowProcess flowProcess, Segment segment, long offset) {
+			
+			String path = flowProcess.getStringProperty("cascading.source.path");
+			if (path == null) {
+				path = flowProcess.getStringProperty("map.input.file");
+			}
+			if (path == null) {
+				/*
+				 * Segments of different files must not collide,
+				 * as this would assign the same tids twice
+				 */
+				throw new IllegalStateException("The path of the input file of a segment is not available.");
+			}
+			
+			if (segment == null || !segment.path.equals(path)) {
+				segment = new Segment(path, offset);
+			}
+			return segment;
+			
+		}
+		
+		static String key(String path, long first) {
+			return path + "@" + first;
+		}
+		
+	}
+	
+	/**
+	 * Emit the segment of each transaction.
+	 */
+	@SuppressWarnings({ "serial", "rawtypes" })
+	private static class IdentifySegment extends BaseOperation<Segment> implements Function<Segment> {
+
+		public IdentifySegment() {
+			super(1, new Fields("path", "first"));
+		}
+
+		@Override
+		public void operate(FlowProcess flowProcess, FunctionCall<Segment> functionCall) {
+			
+			Segment segment = Segment.next(flowProcess, functionCall.getContext(), functionCall.getArguments().getLong("offset"));
+			functionCall.setContext(segment);
+			
+			functionCall.getOutputCollector().add(new Tuple(segment.path, segment.first));
+			
+		}
+		
+	}
+
+	/**
+	 * Parse a line into the distinct items of a transaction, in descending
+	 * order as expected by the top-k algorithms; empty lines are skipped.
+	 */
+	@SuppressWarnings({ "serial", "rawtypes" })
+	private static class ParseTransaction extends BaseOperation implements Function {
+
+		public ParseTransaction() {
+			super(2, new Fields("offset", "items"));
+		}
+
+		@Override
+		public void operate(FlowProcess flowProcess, FunctionCall functionCall) {
+			
+			TupleEntry arguments = functionCall.getArguments();
+			String line = arguments.getString("line").trim();
+			
+			if (line.isEmpty()) return;
+			
+			TreeSet<Integer> items = new TreeSet<Integer>();
+			for (String token : line.split("[\\s,]+")) {
+				items.add(Integer.parseInt(token));
+			}
+			
+			StringBuffer buffer = new StringBuffer();
+			for (Integer item : items.descendingSet()) {
+				if (buffer.length() > 0) buffer.append(" ");
+				buffer.append(item);
+			}
+			
+			functionCall.getOutputCollector().add(new Tuple(arguments.getLong("offset"), buffer.toString()));
+			
+		}
+		
+	}
+
+	/**
+	 * Number the transactions of a segment consecutively, 
+	 * starting with the first tid of the segment.
+	 */
+	@SuppressWarnings({ "serial", "rawtypes" })
+	private static class NumberTransactions extends BaseOperation<Segment> implements Function<Segment> {
+
+		private HashMap<String,Integer> offsets;
+		
+		public NumberTransactions(Map<String,Integer> offsets) {
+			super(2, new Fields("tid", "items"));
+			this.offsets = new HashMap<String,Integer>(offsets);
+		}
+
+		@Override
+		public void operate(FlowProcess flowProcess, FunctionCall<Segment> functionCall) {
+
+			TupleEntry arguments = functionCall.getArguments();
+			
+			Segment segment = Segment.next(flowProcess, functionCall.getContext(), arguments.getLong("offset"));
+			functionCall.setContext(segment);
+			
+			Integer first = offsets.get(Segment.key(segment.path, segment.first));
+			if (first == null) {
+				throw new IllegalStateException("Unknown segment " + Segment.key(segment.path, segment.first));
+			}
+			
+			int tid = first + segment.count++;
+			functionCall.getOutputCollector().add(new Tuple(tid, arguments.getString("items")));
+			
+		}
+		
+	}
+
+	/**
+	 * Emit an (item, tid) pair for each item of a transaction.
+	 */
+	@SuppressWarnings({ "serial", "rawtypes" })
+	private static class SplitTransaction extends BaseOperation implements Function {
+
+		public SplitTransaction() {
+			super(2, new Fields("item", "tid"));
+		}
+
+		@Override
+		public void operate(FlowProcess flowProcess, FunctionCall functionCall) {
+			
+			TupleEntry arguments = functionCall.getArguments();
+			
+			int tid = arguments.getInteger("tid");
+			for (String item : arguments.getString("items").split(" ")) {
+				functionCall.getOutputCollector().add(new Tuple(Integer.parseInt(item), tid));
+			}
+			
+		}
+		
+	}
+
+	/**
+	 * Build the tidset of each item: partial tidsets are built from the (item, tid)
+	 * pairs in the mappers and OR-merged per item in the reducers.
+	 */
+	@SuppressWarnings("serial")
+	private static class MergeTidsBy extends AggregateBy {
+		
+		public MergeTidsBy(Pipe pipe) {
+			super(pipe, new Fields("item"), new Fields("tid"), new TidsetPartials(), new MergeTids());
+		}
+		
+	}
+	
+	/**
+	 * Collect the tids of an item into a partial tidset on the map side.
+	 */
+	@SuppressWarnings({ "serial", "rawtypes" })
+	private static class TidsetPartials implements AggregateBy.Functor {
+
+		private Fields fields = new Fields("tids");
+		
+		@Override
+		public Fields getDeclaredFields() {
+			return fields;
+		}
+
+		@Override
+		public Tuple aggregate(FlowProcess flowProcess, TupleEntry args, Tuple context) {
+			
+			if (context == null) {
+				context = Tuple.size(1);
+				context.set(0, new BitSet());
+			}
+			
+			((BitSet)context.getObject(0)).set(args.getInteger("tid"));
+			return context;
+			
+		}
+
+		@Override
+		public Tuple complete(FlowProcess flowProcess, Tuple context) {
+			return new Tuple(new BitSetWritable((BitSet)context.getObject(0)));
+		}
+		
+	}
+
+	/**
+	 * OR-merge the partial tidsets of an item into its tidset.
+	 */
+	@SuppressWarnings({ "serial", "rawtypes" })
+	private static class MergeTids extends BaseOperation<BitSet> implements Aggregator<BitSet> {
+
+		public MergeTids() {
+			super(1, new Fields("tids"));
+		}
+
+		@Override
+		public void start(FlowProcess flowProcess, AggregatorCall<BitSet> aggregatorCall) {
+			aggregatorCall.setContext(new BitSet());
+		}
+
+		@Override
+		public void aggregate(FlowProcess flowProcess, AggregatorCall<BitSet> aggregatorCall) {
+			aggregatorCall.getContext().or(((BitSetWritable)aggregatorCall.getArguments().getObject("tids")).get());
+		}
+
+		@Override
+		public void complete(FlowProcess flowProcess, AggregatorCall<BitSet> aggregatorCall) {
+			aggregatorCall.getOutputCollector().add(new Tuple(new BitSetWritable(aggregatorCall.getContext())));
+		}
+		
+	}
+
+	/**
+	 * Convert an item tidset or a transaction into a record of the final
+	 * assembly; all records share the same group.
+	 */
+	@SuppressWarnings({ "serial", "rawtypes" })
+	private static class ToRecord extends BaseOperation implements Function {
+
+		private int kind;
+		
+		public ToRecord(int kind) {
+			super(2, new Fields("group", "kind", "key", "value"));
+			this.kind = kind;
+		}
+
+		@Override
+		public void operate(FlowProcess flowProcess, FunctionCall functionCall) {
+			
+			TupleEntry arguments = functionCall.getArguments();
+			if (kind == ITEM) {
+				
+				int item = arguments.getInteger("item");
+				functionCall.getOutputCollector().add(new Tuple(0, kind, item, arguments.getObject("tids")));
+
+			} else {
+				
+				int tid = arguments.getInteger("tid");
+				
+				String[] items = arguments.getString("items").split(" ");
+				Transaction transaction = new Transaction(items.length);
+				
+				transaction.setId(String.valueOf(tid));
+				for (String item : items) {
+					transaction.addItem(Integer.parseInt(item));
+				}
+				
+				functionCall.getOutputCollector().add(new Tuple(0, kind, tid, new TransactionWritable(transaction)));
+				
+			}
+			
+		}
+		
+	}
+
+	/**
+	 * Assemble the item tidsets and transactions to a VerticalWritable.
+	 */
+	@SuppressWarnings({ "serial", "rawtypes" })
+	private static class AssembleVertical extends BaseOperation implements Buffer {
+
+		public AssembleVertical() {
+			super(3, new Fields("vertical"));
+		}
+
+		@Override
+		public void operate(FlowProcess flowProcess, BufferCall bufferCall) {
+
+			TreeMap<Integer, BitSet> tidsets = new TreeMap<Integer, BitSet>();
+			List<Transaction> transactions = new ArrayList<Transaction>();
+			
+			@SuppressWarnings("unchecked")
+			Iterator<TupleEntry> iter = bufferCall.getArgumentsIterator();
+			while (iter.hasNext()) {
+				
+				TupleEntry entry = iter.next();
+				if (entry.getInteger("kind") == ITEM) {
+					tidsets.put(entry.getInteger("key"), ((BitSetWritable)entry.getObject("value")).get());
+				
+				} else {
+					/*
+					 * Records are sorted by tid within their kind
+					 */
+					transactions.add(((TransactionWritable)entry.getObject("value")).get());
+				}
+				
+			}
+			
+			int max = tidsets.isEmpty() ? 0 : tidsets.lastKey();
+			
+			BitSet[] tableItemTids = new BitSet[max + 1];
+			int[] tableItemCount = new int[max + 1];
+			
+			for (int item = 0; item <= max; item++) {
+				
+				BitSet tids = tidsets.get(item);
+				tableItemTids[item] = (tids == null) ? new BitSet() : tids;
+				tableItemCount[item] = tableItemTids[item].cardinality();
+				
+			}
+			
+			Vertical vertical = new Vertical(tableItemTids, tableItemCount, transactions.toArray(new Transaction[transactions.size()]), max);
+			bufferCall.getOutputCollector().add(new Tuple(new VerticalWritable(vertical)));
+			
+		}
+		
+	}
+	
+}